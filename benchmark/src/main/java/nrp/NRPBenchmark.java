@@ -0,0 +1,154 @@
+package nrp;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import nrp.logger.NRPLogger;
+
+/**
+ * Throughput of the low-level heuristics and the solution operations of
+ * {@link NRP} on every instance, run with -prof gc to get the allocation rate
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class NRPBenchmark
+{
+    @Param( { "1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "11", "12", "13", "14",
+            "15" } )
+    private int instanceId;
+
+    @Param( { "BITSET", "LIST" } )
+    private NRPSolutionType solutionType;
+
+    private NRP nrp;
+
+    /*
+     * A solution owned by the benchmark for the add and remove operations, and the
+     * customers which have not been accepted in it
+     */
+    private NRPSolution nrpSolution;
+    private int[] haveNotBeenAcceptedCustomers;
+    private int nextCustomer = 0;
+
+    @Setup( Level.Trial )
+    public void setUp()
+    {
+        this.nrp = new NRP( 1234L, this.solutionType );
+        this.nrp.loadInstance( this.instanceId );
+        this.nrp.setMemorySize( 3 );
+        this.nrp.initialiseSolution( 0 );
+        this.nrp.initialiseSolution( 1 );
+
+        NRPInstance nrpInstance = NRPInstanceRegistry
+                .get( NRPDirectoryInstanceSource.getBundledInstances(), this.instanceId );
+        switch ( this.solutionType ) {
+            case LIST:
+                this.nrpSolution = new ListNRPSolution( nrpInstance );
+                break;
+            case BITSET:
+            default:
+                this.nrpSolution = new BitSetNRPSolution( nrpInstance );
+                break;
+        }
+
+        /*
+         * Accept every other customer so the add and remove are done against a
+         * solution with shared enhancements
+         */
+        for ( int i = 0; i < nrpInstance.getNumberOfCustomers(); i += 2 ) {
+            this.nrpSolution.addAnAcceptedCustomer( i );
+        }
+        this.haveNotBeenAcceptedCustomers = this.nrpSolution.getHaveNotBeenAcceptedCustomers();
+    }
+
+    /**
+     * Every applyHeuristic call is added to the logs of NRPLogger, start a new log
+     * so they don't keep growing over the whole trial
+     */
+    @Setup( Level.Iteration )
+    public void resetLogger()
+    {
+        NRPLogger.logStart( "NRPBenchmark", this.instanceId, 0, 0 );
+    }
+
+    @Benchmark
+    public double randomDeletionAndFirstAdding()
+    {
+        return this.nrp.applyHeuristic( 0, 0, 2 );
+    }
+
+    @Benchmark
+    public double deleteHighestCostAddLowestCost()
+    {
+        return this.nrp.applyHeuristic( 1, 0, 2 );
+    }
+
+    @Benchmark
+    public double deleteLowestProfitAddHighestProfit()
+    {
+        return this.nrp.applyHeuristic( 2, 0, 2 );
+    }
+
+    @Benchmark
+    public double deleteLowestProfitCostRatioAddHighestProfitCostRatio()
+    {
+        return this.nrp.applyHeuristic( 3, 0, 2 );
+    }
+
+    @Benchmark
+    public double initialiseSolution()
+    {
+        this.nrp.initialiseSolution( 2 );
+
+        return this.nrp.getFunctionValue( 2 );
+    }
+
+    @Benchmark
+    public double copySolution()
+    {
+        this.nrp.copySolution( 0, 2 );
+
+        return this.nrp.getFunctionValue( 2 );
+    }
+
+    @Benchmark
+    public boolean compareSolutions()
+    {
+        return this.nrp.compareSolutions( 0, 1 );
+    }
+
+    /**
+     * Add the next customer which has not been accepted and remove it again, so the
+     * solution stays the same between invocations
+     *
+     * @return the totalCost while the customer is accepted
+     */
+    @Benchmark
+    public double addAndRemoveAnAcceptedCustomer()
+    {
+        int customer = this.haveNotBeenAcceptedCustomers[ this.nextCustomer ];
+        this.nextCustomer = ( this.nextCustomer + 1 ) % this.haveNotBeenAcceptedCustomers.length;
+
+        this.nrpSolution.addAnAcceptedCustomer( customer );
+        double totalCost = this.nrpSolution.getTotalCost();
+        this.nrpSolution.removeAnAcceptedCustomer( customer );
+
+        return totalCost;
+    }
+}
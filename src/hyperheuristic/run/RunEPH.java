@@ -18,6 +18,12 @@ public class RunEPH
 
         String hyperHeuristicName = "DavidChescEPH";
 
+        // keep binary snapshots of the parsed instances next to the instance files, so
+        // every run after the first skips the parsing, see README.md
+        if ( System.getProperty( "nrp.snapshotDirectory" ) == null ) {
+            System.setProperty( "nrp.snapshotDirectory", "src/nrp/instance" );
+        }
+
         for ( int instance = 1; instance <= totalInstances; instance++ ) {
             for ( int run = 1; run <= totalRuns; run++ ) {
 
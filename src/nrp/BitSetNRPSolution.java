@@ -0,0 +1,815 @@
+package nrp;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Solution representation which keeps the accepted customers and the accepted
+ * enhancements in bitsets, the bit of a customer or enhancement index is set when
+ * it is accepted. The totalCost and totalProfit are updated by delta on every add
+ * and remove instead of being summed again. Each enhancement also keeps how many
+ * accepted customers need it, so adding or removing a customer only walks the
+ * enhancements of that customer. The cost still missing for every customer is kept
+ * as well, and only updated for the customers which need an enhancement whose
+ * coverage starts or stops. For every {@link NRPCustomerOrdering} the accepted
+ * customers are also kept by rank, so the first accepted customer and the customers
+ * which have not been accepted come out of the bitset already in order. The
+ * customers which have not been accepted are also bucketed by the binary exponent of
+ * their residual cost, so the customers which fit a budget are found without testing
+ * all of them. Copies share their memory with the original until one of them is
+ * modified
+ */
+class BitSetNRPSolution extends NRPSolution
+{
+    private static final NRPCustomerOrdering[] orderings = NRPCustomerOrdering.values();
+
+    private NRPInstance nrpInstance;
+    private SolutionMemory memory;
+
+    /*
+     * The last bucket of the residual costs, the one of the total cost of the
+     * instance, and the number of words of the bitset of a bucket
+     */
+    private int lastResidualBucket;
+    private int wordsPerResidualBucket;
+
+    private double totalCost = 0.0;
+    private double totalProfit = 0.0;
+
+    /**
+     * The mutable part of a solution, shared between copies and copied on the first
+     * write of a solution which is not its only user
+     */
+    private static class SolutionMemory
+    {
+        private BitSet acceptedCustomers;
+        private BitSet acceptedEnhancements;
+
+        /*
+         * Number of accepted customers which need each enhancement, an enhancement is
+         * accepted as long as its coverage is above zero
+         */
+        private int[] enhancementCoverage;
+
+        /*
+         * The cost of the enhancements each customer needs which are not accepted
+         * yet, the marginal cost of adding the customer
+         */
+        private double[] residualCosts;
+
+        /*
+         * The ranks of the accepted customers in every NRPCustomerOrdering, indexed
+         * by the ordinal of the ordering
+         */
+        private BitSet[] acceptedRanks;
+
+        /*
+         * The customers which have not been accepted by the bucket of their residual
+         * cost, see getResidualBucket. One bitset per bucket, one after the other in
+         * the same array so a copy is a single clone
+         */
+        private long[] residualBucketWords;
+
+        /*
+         * Number of solutions using this memory
+         */
+        private int users = 1;
+
+        private SolutionMemory( NRPInstance nrpInstance, long[] residualBucketWords )
+        {
+            this.acceptedCustomers = new BitSet( nrpInstance.getNumberOfCustomers() );
+            this.acceptedEnhancements = new BitSet( nrpInstance.getNumberOfEnhancements() );
+            this.enhancementCoverage = new int[ nrpInstance.getNumberOfEnhancements() ];
+            this.residualCosts = nrpInstance.getCustomerCosts().clone();
+
+            this.acceptedRanks = new BitSet[ orderings.length ];
+            for ( int i = 0; i < this.acceptedRanks.length; i++ ) {
+                this.acceptedRanks[ i ] = new BitSet( nrpInstance.getNumberOfCustomers() );
+            }
+
+            this.residualBucketWords = residualBucketWords;
+        }
+
+        private SolutionMemory( SolutionMemory memory )
+        {
+            this.acceptedCustomers = (BitSet) memory.acceptedCustomers.clone();
+            this.acceptedEnhancements = (BitSet) memory.acceptedEnhancements.clone();
+            this.enhancementCoverage = memory.enhancementCoverage.clone();
+            this.residualCosts = memory.residualCosts.clone();
+
+            this.acceptedRanks = new BitSet[ memory.acceptedRanks.length ];
+            for ( int i = 0; i < this.acceptedRanks.length; i++ ) {
+                this.acceptedRanks[ i ] = (BitSet) memory.acceptedRanks[ i ].clone();
+            }
+
+            this.residualBucketWords = memory.residualBucketWords.clone();
+        }
+
+        /**
+         * The memory moved to an instance whose customers changed, the accepted
+         * customers and the residual costs are moved to their new index. The ranks
+         * start empty and the added customers have no residual cost yet
+         */
+        private SolutionMemory( SolutionMemory memory, NRPInstance nrpInstance,
+                int[] customerMap, long[] residualBucketWords )
+        {
+            this.acceptedCustomers = new BitSet( nrpInstance.getNumberOfCustomers() );
+            for ( int i = memory.acceptedCustomers.nextSetBit( 0 ); i >= 0;
+                    i = memory.acceptedCustomers.nextSetBit( i + 1 ) ) {
+                if ( customerMap[ i ] >= 0 ) {
+                    this.acceptedCustomers.set( customerMap[ i ] );
+                }
+            }
+
+            this.acceptedEnhancements = (BitSet) memory.acceptedEnhancements.clone();
+            this.enhancementCoverage = memory.enhancementCoverage.clone();
+
+            this.residualCosts = new double[ nrpInstance.getNumberOfCustomers() ];
+            for ( int i = 0; i < customerMap.length; i++ ) {
+                if ( customerMap[ i ] >= 0 ) {
+                    this.residualCosts[ customerMap[ i ] ] = memory.residualCosts[ i ];
+                }
+            }
+
+            this.acceptedRanks = new BitSet[ orderings.length ];
+            for ( int i = 0; i < this.acceptedRanks.length; i++ ) {
+                this.acceptedRanks[ i ] = new BitSet( nrpInstance.getNumberOfCustomers() );
+            }
+
+            this.residualBucketWords = residualBucketWords;
+        }
+    }
+
+    /**
+     * Basic Constructor, no customer is accepted
+     *
+     * @param nrpInstance
+     */
+    protected BitSetNRPSolution( NRPInstance nrpInstance )
+    {
+        this.nrpInstance = nrpInstance;
+        this.lastResidualBucket = BitSetNRPSolution.getResidualBucket(
+                nrpInstance.getTotalCost(), Integer.MAX_VALUE );
+        this.wordsPerResidualBucket = ( nrpInstance.getNumberOfCustomers() + 63 ) >>> 6;
+        this.memory = new SolutionMemory( nrpInstance,
+                new long[ ( this.lastResidualBucket + 1 ) * this.wordsPerResidualBucket ] );
+
+        for ( int i = 0; i < nrpInstance.getNumberOfCustomers(); i++ ) {
+            this.setInResidualBucket( i, this.memory.residualCosts[ i ], true );
+        }
+    }
+
+    /**
+     * A copy constructor, the memory is shared until either solution is modified
+     *
+     * @param nrpSolution
+     */
+    protected BitSetNRPSolution( BitSetNRPSolution nrpSolution )
+    {
+        super( nrpSolution );
+
+        this.nrpInstance = nrpSolution.nrpInstance;
+        this.lastResidualBucket = nrpSolution.lastResidualBucket;
+        this.wordsPerResidualBucket = nrpSolution.wordsPerResidualBucket;
+        this.memory = nrpSolution.memory;
+        this.memory.users++;
+        this.totalCost = nrpSolution.totalCost;
+        this.totalProfit = nrpSolution.totalProfit;
+    }
+
+    /**
+     * Move the solution to the instance a delta was applied to. Only the
+     * enhancements the delta touches are walked: the ones a removed customer leaves
+     * uncovered and the ones whose cost changes. The residual costs are updated for
+     * the customers which need them, the ranks only for the orderings which changed.
+     * When customers are added or removed, the arrays by customer are moved to the
+     * new indices and the ranks and buckets are filled again from them
+     *
+     * @param nrpSolution
+     *            the solution in the instance the delta was applied to
+     * @param nrpInstance
+     *            the instance with the changes of the delta
+     * @param delta
+     * @param customerMap
+     */
+    private BitSetNRPSolution( BitSetNRPSolution nrpSolution, NRPInstance nrpInstance,
+            NRPInstanceDelta delta, int[] customerMap )
+    {
+        super( nrpSolution );
+
+        NRPInstance previousInstance = nrpSolution.nrpInstance;
+        SolutionMemory previousMemory = nrpSolution.memory;
+        boolean changesCustomers = delta.changesCustomers();
+
+        this.nrpInstance = nrpInstance;
+        this.lastResidualBucket = BitSetNRPSolution.getResidualBucket(
+                nrpInstance.getTotalCost(), Integer.MAX_VALUE );
+        this.wordsPerResidualBucket = ( nrpInstance.getNumberOfCustomers() + 63 ) >>> 6;
+        this.totalCost = nrpSolution.totalCost;
+        this.totalProfit = nrpSolution.totalProfit;
+
+        boolean keepsResidualBuckets = !changesCustomers
+                && this.lastResidualBucket == nrpSolution.lastResidualBucket;
+        long[] residualBucketWords = keepsResidualBuckets
+                ? null
+                : new long[ ( this.lastResidualBucket + 1 ) * this.wordsPerResidualBucket ];
+        if ( changesCustomers ) {
+            this.memory = new SolutionMemory( previousMemory, nrpInstance, customerMap,
+                    residualBucketWords );
+        } else {
+            this.memory = new SolutionMemory( previousMemory );
+            if ( !keepsResidualBuckets ) {
+                this.memory.residualBucketWords = residualBucketWords;
+            }
+        }
+
+        /*
+         * The removed customers release their enhancements, an enhancement no other
+         * customer needs adds its cost back to the residual costs
+         */
+        double[] previousEnhancementCosts = previousInstance.getEnhancementCosts();
+        double[] previousCustomerProfits = previousInstance.getCustomerProfits();
+        int[] previousRequirementOffsets = previousInstance.getRequirementOffsets();
+        int[] previousRequirementIndices = previousInstance.getRequirementIndices();
+        Map< Integer, Double > residualCostDifferences = new TreeMap<>();
+
+        BitSet removedCustomers = (BitSet) delta.getRemovedCustomers().clone();
+        removedCustomers.and( previousMemory.acceptedCustomers );
+        for ( int i = removedCustomers.nextSetBit( 0 ); i >= 0;
+                i = removedCustomers.nextSetBit( i + 1 ) ) {
+            this.totalProfit -= previousCustomerProfits[ i ];
+
+            for ( int j = previousRequirementOffsets[ i ]; j < previousRequirementOffsets[ i + 1 ];
+                    j++ ) {
+                int enhancementIndex = previousRequirementIndices[ j ];
+
+                if ( --this.memory.enhancementCoverage[ enhancementIndex ] == 0 ) {
+                    this.memory.acceptedEnhancements.clear( enhancementIndex );
+                    this.totalCost -= previousEnhancementCosts[ enhancementIndex ];
+                    residualCostDifferences.put( enhancementIndex,
+                            previousEnhancementCosts[ enhancementIndex ] );
+                }
+            }
+        }
+
+        /*
+         * A changed cost goes to the totalCost while the enhancement is accepted,
+         * else to the residual costs
+         */
+        double[] enhancementCosts = nrpInstance.getEnhancementCosts();
+        for ( int enhancementIndex : delta.getEnhancementCosts().keySet() ) {
+            double costDifference = enhancementCosts[ enhancementIndex ]
+                    - previousEnhancementCosts[ enhancementIndex ];
+            if ( costDifference == 0.0 ) {
+                continue;
+            }
+
+            if ( this.memory.enhancementCoverage[ enhancementIndex ] > 0 ) {
+                this.totalCost += costDifference;
+            } else {
+                Double residualCostDifference = residualCostDifferences.get( enhancementIndex );
+                residualCostDifferences.put( enhancementIndex, residualCostDifference == null
+                        ? costDifference
+                        : residualCostDifference + costDifference );
+            }
+        }
+
+        double[] customerProfits = nrpInstance.getCustomerProfits();
+        for ( int customerIndex : delta.getCustomerProfits().keySet() ) {
+            if ( customerMap[ customerIndex ] >= 0
+                    && previousMemory.acceptedCustomers.get( customerIndex ) ) {
+                this.totalProfit += customerProfits[ customerMap[ customerIndex ] ]
+                        - previousCustomerProfits[ customerIndex ];
+            }
+        }
+
+        if ( keepsResidualBuckets ) {
+            for ( Map.Entry< Integer, Double > entry : residualCostDifferences.entrySet() ) {
+                this.updateResidualCosts( entry.getKey(), entry.getValue() );
+            }
+        } else {
+            this.moveResidualCosts( residualCostDifferences,
+                    nrpInstance.getNumberOfCustomers() - delta.getAddedCustomerProfits().size() );
+        }
+
+        for ( NRPCustomerOrdering ordering : orderings ) {
+            if ( changesCustomers || nrpInstance.getCustomerRanks( ordering ) != previousInstance
+                    .getCustomerRanks( ordering ) ) {
+                this.setAcceptedRanks( ordering );
+            }
+        }
+
+        /*
+         * The keys of the customers whose index doesn't change are toggled twice
+         */
+        if ( changesCustomers ) {
+            for ( int i = previousMemory.acceptedCustomers.nextSetBit( 0 ); i >= 0;
+                    i = previousMemory.acceptedCustomers.nextSetBit( i + 1 ) ) {
+                this.toggleFingerprint( i );
+            }
+            for ( int i = this.memory.acceptedCustomers.nextSetBit( 0 ); i >= 0;
+                    i = this.memory.acceptedCustomers.nextSetBit( i + 1 ) ) {
+                this.toggleFingerprint( i );
+            }
+        }
+    }
+
+    /**
+     * Update the residual costs of the customers which were already in the instance,
+     * sum the ones of the added customers and fill the buckets again
+     *
+     * @param residualCostDifferences
+     *            the difference of the residual cost of the customers which need each
+     *            enhancement
+     * @param firstAddedCustomer
+     */
+    private void moveResidualCosts( Map< Integer, Double > residualCostDifferences,
+            int firstAddedCustomer )
+    {
+        int[] enhancementCustomerOffsets = this.nrpInstance.getEnhancementCustomerOffsets();
+        int[] enhancementCustomerIndices = this.nrpInstance.getEnhancementCustomerIndices();
+        double[] residualCosts = this.memory.residualCosts;
+
+        for ( Map.Entry< Integer, Double > entry : residualCostDifferences.entrySet() ) {
+            int enhancementIndex = entry.getKey();
+            for ( int i = enhancementCustomerOffsets[ enhancementIndex ];
+                    i < enhancementCustomerOffsets[ enhancementIndex + 1 ]; i++ ) {
+                if ( enhancementCustomerIndices[ i ] < firstAddedCustomer ) {
+                    residualCosts[ enhancementCustomerIndices[ i ] ] += entry.getValue();
+                }
+            }
+        }
+
+        int[] requirementOffsets = this.nrpInstance.getRequirementOffsets();
+        int[] requirementIndices = this.nrpInstance.getRequirementIndices();
+        double[] enhancementCosts = this.nrpInstance.getEnhancementCosts();
+        for ( int customerIndex = firstAddedCustomer;
+                customerIndex < this.nrpInstance.getNumberOfCustomers(); customerIndex++ ) {
+            for ( int i = requirementOffsets[ customerIndex ];
+                    i < requirementOffsets[ customerIndex + 1 ]; i++ ) {
+                if ( this.memory.enhancementCoverage[ requirementIndices[ i ] ] == 0 ) {
+                    residualCosts[ customerIndex ] += enhancementCosts[ requirementIndices[ i ] ];
+                }
+            }
+        }
+
+        BitSet acceptedCustomers = this.memory.acceptedCustomers;
+        for ( int customerIndex = acceptedCustomers.nextClearBit( 0 );
+                customerIndex < this.nrpInstance.getNumberOfCustomers();
+                customerIndex = acceptedCustomers.nextClearBit( customerIndex + 1 ) ) {
+            this.setInResidualBucket( customerIndex, residualCosts[ customerIndex ], true );
+        }
+    }
+
+    /**
+     * @return true if the memory is shared, the next write of this solution copies it
+     */
+    protected boolean isSharingMemory()
+    {
+        return this.memory.users > 1;
+    }
+
+    /**
+     * Make sure this solution is the only user of its memory before modifying it
+     */
+    private void ensureOwnMemory()
+    {
+        if ( this.memory.users > 1 ) {
+            this.memory.users--;
+            this.memory = new SolutionMemory( this.memory );
+        }
+    }
+
+    @Override
+    protected NRPSolution copy()
+    {
+        return new BitSetNRPSolution( this );
+    }
+
+    /**
+     * The other users of the memory no longer count this solution, so the last of
+     * them writes to it without copying
+     */
+    @Override
+    protected void release()
+    {
+        if ( this.memory != null ) {
+            this.memory.users--;
+            this.memory = null;
+        }
+    }
+
+    @Override
+    protected NRPSolution moveTo( NRPInstance nrpInstance, NRPInstanceDelta delta,
+            int[] customerMap )
+    {
+        return new BitSetNRPSolution( this, nrpInstance, delta, customerMap );
+    }
+
+    @Override
+    protected NRPInstance getNrpInstance()
+    {
+        return nrpInstance;
+    }
+
+    @Override
+    protected int[] getHaveNotBeenAcceptedCustomers()
+    {
+        BitSet acceptedCustomers = this.memory.acceptedCustomers;
+        int numberOfCustomers = this.nrpInstance.getNumberOfCustomers();
+        int[] haveNotBeenAcceptedCustomers
+                = new int[ numberOfCustomers - acceptedCustomers.cardinality() ];
+
+        int index = 0;
+        for ( int i = acceptedCustomers.nextClearBit( 0 ); i < numberOfCustomers;
+                i = acceptedCustomers.nextClearBit( i + 1 ) ) {
+            haveNotBeenAcceptedCustomers[ index++ ] = i;
+        }
+
+        return haveNotBeenAcceptedCustomers;
+    }
+
+    @Override
+    protected int getFirstAcceptedCustomer( NRPCustomerOrdering ordering )
+    {
+        int firstRank = this.memory.acceptedRanks[ ordering.ordinal() ].nextSetBit( 0 );
+
+        return firstRank < 0 ? -1 : this.nrpInstance.getCustomerOrder( ordering )[ firstRank ];
+    }
+
+    @Override
+    protected boolean isAcceptedCustomer( int customerIndex )
+    {
+        return this.memory.acceptedCustomers.get( customerIndex );
+    }
+
+    @Override
+    protected boolean isAcceptedEnhancement( int enhancementIndex )
+    {
+        return this.memory.acceptedEnhancements.get( enhancementIndex );
+    }
+
+    @Override
+    protected int getNextAcceptedRank( NRPCustomerOrdering ordering, int rank )
+    {
+        return this.memory.acceptedRanks[ ordering.ordinal() ].nextSetBit( Math.max( rank, 0 ) );
+    }
+
+    @Override
+    protected int getPreviousRejectedRank( NRPCustomerOrdering ordering, int rank )
+    {
+        if ( rank < 0 ) {
+            return -1;
+        }
+
+        return this.memory.acceptedRanks[ ordering.ordinal() ].previousClearBit(
+                Math.min( rank, this.nrpInstance.getNumberOfCustomers() - 1 ) );
+    }
+
+    @Override
+    protected int[] getHaveNotBeenAcceptedCustomers( NRPCustomerOrdering ordering,
+            boolean reversed )
+    {
+        BitSet acceptedRanks = this.memory.acceptedRanks[ ordering.ordinal() ];
+        int[] customerOrder = this.nrpInstance.getCustomerOrder( ordering );
+        int[] haveNotBeenAcceptedCustomers
+                = new int[ customerOrder.length - acceptedRanks.cardinality() ];
+
+        int index = 0;
+        if ( reversed ) {
+            for ( int rank = acceptedRanks.previousClearBit( customerOrder.length - 1 );
+                    rank >= 0; rank = acceptedRanks.previousClearBit( rank - 1 ) ) {
+                haveNotBeenAcceptedCustomers[ index++ ] = customerOrder[ rank ];
+            }
+        } else {
+            for ( int rank = acceptedRanks.nextClearBit( 0 ); rank < customerOrder.length;
+                    rank = acceptedRanks.nextClearBit( rank + 1 ) ) {
+                haveNotBeenAcceptedCustomers[ index++ ] = customerOrder[ rank ];
+            }
+        }
+
+        return haveNotBeenAcceptedCustomers;
+    }
+
+    @Override
+    protected int[] getAffordableCustomers( NRPCustomerOrdering ordering, boolean reversed,
+            double budget )
+    {
+        long[] residualBucketWords = this.memory.residualBucketWords;
+        int[] customerRanks = this.nrpInstance.getCustomerRanks( ordering );
+        int[] customerOrder = this.nrpInstance.getCustomerOrder( ordering );
+
+        /*
+         * Every bucket up to the one of the budget may hold customers which fit, their
+         * words come one after the other
+         */
+        int lastWord = budget < 0.0
+                ? 0
+                : ( this.getResidualBucket( budget ) + 1 ) * this.wordsPerResidualBucket;
+        int numberOfCandidates = 0;
+        for ( int i = 0; i < lastWord; i++ ) {
+            numberOfCandidates += Long.bitCount( residualBucketWords[ i ] );
+        }
+
+        int[] candidateRanks = new int[ numberOfCandidates ];
+        int index = 0;
+        for ( int i = 0; i < lastWord; i++ ) {
+            int firstCustomer = ( i % this.wordsPerResidualBucket ) << 6;
+
+            for ( long word = residualBucketWords[ i ]; word != 0; word &= word - 1 ) {
+                candidateRanks[ index++ ]
+                        = customerRanks[ firstCustomer + Long.numberOfTrailingZeros( word ) ];
+            }
+        }
+        Arrays.sort( candidateRanks );
+
+        int[] affordableCustomers = new int[ numberOfCandidates ];
+        for ( int i = 0; i < numberOfCandidates; i++ ) {
+            affordableCustomers[ i ] = customerOrder[ candidateRanks[ reversed
+                    ? numberOfCandidates - 1 - i
+                    : i ] ];
+        }
+
+        return affordableCustomers;
+    }
+
+    /**
+     * @param residualCost
+     * @return the bucket of the residual cost, see getResidualBucket( double, int )
+     */
+    private int getResidualBucket( double residualCost )
+    {
+        return BitSetNRPSolution.getResidualBucket( residualCost, this.lastResidualBucket );
+    }
+
+    /**
+     * Bucket 0 is for no residual cost, 1 for below 1, and bucket b for [ 2^(b - 2),
+     * 2^(b - 1) ) after that, so a cost never fits the budget of a lower bucket
+     *
+     * @param residualCost
+     * @param lastBucket
+     * @return the bucket of the residual cost, at most lastBucket
+     */
+    private static int getResidualBucket( double residualCost, int lastBucket )
+    {
+        if ( residualCost < 1.0 ) {
+            return residualCost <= 0.0 ? 0 : Math.min( 1, lastBucket );
+        }
+
+        return Math.min( lastBucket, Math.getExponent( residualCost ) + 2 );
+    }
+
+    /**
+     * Set or clear the customer in the bitset of the bucket of the residual cost
+     *
+     * @param customerIndex
+     * @param residualCost
+     * @param isSet
+     */
+    private void setInResidualBucket( int customerIndex, double residualCost, boolean isSet )
+    {
+        int word = this.getResidualBucket( residualCost ) * this.wordsPerResidualBucket
+                + ( customerIndex >>> 6 );
+
+        if ( isSet ) {
+            this.memory.residualBucketWords[ word ] |= 1L << customerIndex;
+        } else {
+            this.memory.residualBucketWords[ word ] &= ~( 1L << customerIndex );
+        }
+    }
+
+    /**
+     * Fill the accepted ranks of the ordering again from the accepted customers
+     *
+     * @param ordering
+     */
+    private void setAcceptedRanks( NRPCustomerOrdering ordering )
+    {
+        BitSet acceptedRanks = this.memory.acceptedRanks[ ordering.ordinal() ];
+        BitSet acceptedCustomers = this.memory.acceptedCustomers;
+        int[] customerRanks = this.nrpInstance.getCustomerRanks( ordering );
+
+        acceptedRanks.clear();
+        for ( int i = acceptedCustomers.nextSetBit( 0 ); i >= 0;
+                i = acceptedCustomers.nextSetBit( i + 1 ) ) {
+            acceptedRanks.set( customerRanks[ i ] );
+        }
+    }
+
+    /**
+     * Set or clear the customer in the accepted ranks of every ordering
+     *
+     * @param customerIndex
+     * @param accepted
+     */
+    private void setAcceptedRanks( int customerIndex, boolean accepted )
+    {
+        BitSet[] acceptedRanks = this.memory.acceptedRanks;
+        for ( NRPCustomerOrdering ordering : orderings ) {
+            acceptedRanks[ ordering.ordinal() ].set(
+                    this.nrpInstance.getCustomerRanks( ordering )[ customerIndex ], accepted );
+        }
+    }
+
+    @Override
+    protected int[] getAcceptedCustomers()
+    {
+        return this.memory.acceptedCustomers.stream().toArray();
+    }
+
+    @Override
+    protected BitSet getAcceptedCustomerSet()
+    {
+        return (BitSet) this.memory.acceptedCustomers.clone();
+    }
+
+    @Override
+    protected int[] getAcceptedEnhancements()
+    {
+        return this.memory.acceptedEnhancements.stream().toArray();
+    }
+
+    @Override
+    protected double getTotalCost()
+    {
+        return totalCost;
+    }
+
+    @Override
+    protected double getTotalProfit()
+    {
+        return totalProfit;
+    }
+
+    @Override
+    protected boolean compareAcceptedCustomers( NRPSolution nrpSolution )
+    {
+        if ( !( nrpSolution instanceof BitSetNRPSolution ) ) {
+            return super.compareAcceptedCustomers( nrpSolution );
+        }
+
+        SolutionMemory otherMemory = ( (BitSetNRPSolution) nrpSolution ).memory;
+
+        return this.memory == otherMemory
+                || this.memory.acceptedCustomers.equals( otherMemory.acceptedCustomers );
+    }
+
+    @Override
+    protected double getMarginalCost( int customerIndex, double budget )
+    {
+        return this.memory.residualCosts[ customerIndex ];
+    }
+
+    @Override
+    protected double getFreedCost( int customerIndex )
+    {
+        int[] requirementOffsets = this.nrpInstance.getRequirementOffsets();
+        int[] requirementIndices = this.nrpInstance.getRequirementIndices();
+        double[] enhancementCosts = this.nrpInstance.getEnhancementCosts();
+
+        double freedCost = 0.0;
+        for ( int i = requirementOffsets[ customerIndex ];
+                i < requirementOffsets[ customerIndex + 1 ]; i++ ) {
+            if ( this.memory.enhancementCoverage[ requirementIndices[ i ] ] == 1 ) {
+                freedCost += enhancementCosts[ requirementIndices[ i ] ];
+            }
+        }
+
+        return freedCost;
+    }
+
+    @Override
+    protected double getSwapCost( int removedCustomerIndex, int addedCustomerIndex )
+    {
+        int[] requirementOffsets = this.nrpInstance.getRequirementOffsets();
+        int[] requirementIndices = this.nrpInstance.getRequirementIndices();
+        double[] enhancementCosts = this.nrpInstance.getEnhancementCosts();
+
+        /*
+         * The enhancements only the removed customer needs are freed, unless the
+         * added customer needs them as well. Both rows are sorted, so they are walked
+         * side by side
+         */
+        double swapCost = this.totalCost + this.memory.residualCosts[ addedCustomerIndex ];
+        int addedIndex = requirementOffsets[ addedCustomerIndex ];
+        int addedEnd = requirementOffsets[ addedCustomerIndex + 1 ];
+        for ( int i = requirementOffsets[ removedCustomerIndex ];
+                i < requirementOffsets[ removedCustomerIndex + 1 ]; i++ ) {
+            int enhancementIndex = requirementIndices[ i ];
+            if ( this.memory.enhancementCoverage[ enhancementIndex ] != 1 ) {
+                continue;
+            }
+
+            while ( addedIndex < addedEnd && requirementIndices[ addedIndex ] < enhancementIndex ) {
+                addedIndex++;
+            }
+            if ( addedIndex >= addedEnd || requirementIndices[ addedIndex ] != enhancementIndex ) {
+                swapCost -= enhancementCosts[ enhancementIndex ];
+            }
+        }
+
+        return swapCost;
+    }
+
+    /**
+     * Add the cost difference to the residual cost of every customer which needs
+     * the enhancement
+     *
+     * @param enhancementIndex
+     * @param costDifference
+     */
+    private void updateResidualCosts( int enhancementIndex, double costDifference )
+    {
+        int[] enhancementCustomerOffsets = this.nrpInstance.getEnhancementCustomerOffsets();
+        int[] enhancementCustomerIndices = this.nrpInstance.getEnhancementCustomerIndices();
+        double[] residualCosts = this.memory.residualCosts;
+
+        BitSet acceptedCustomers = this.memory.acceptedCustomers;
+
+        for ( int i = enhancementCustomerOffsets[ enhancementIndex ];
+                i < enhancementCustomerOffsets[ enhancementIndex + 1 ]; i++ ) {
+            int customerIndex = enhancementCustomerIndices[ i ];
+            double previousResidualCost = residualCosts[ customerIndex ];
+            residualCosts[ customerIndex ] += costDifference;
+
+            /*
+             * The accepted customers aren't in any bucket
+             */
+            if ( this.getResidualBucket( previousResidualCost )
+                    != this.getResidualBucket( residualCosts[ customerIndex ] )
+                    && !acceptedCustomers.get( customerIndex ) ) {
+                this.setInResidualBucket( customerIndex, previousResidualCost, false );
+                this.setInResidualBucket( customerIndex, residualCosts[ customerIndex ], true );
+            }
+        }
+    }
+
+    @Override
+    protected void addAnAcceptedCustomer( int addedCustomerIndex )
+    {
+        if ( this.memory.acceptedCustomers.get( addedCustomerIndex ) ) {
+            return;
+        }
+
+        this.ensureOwnMemory();
+        this.memory.acceptedCustomers.set( addedCustomerIndex );
+        this.setInResidualBucket( addedCustomerIndex,
+                this.memory.residualCosts[ addedCustomerIndex ], false );
+        this.setAcceptedRanks( addedCustomerIndex, true );
+        this.toggleFingerprint( addedCustomerIndex );
+        this.totalProfit += this.nrpInstance.getCustomerProfits()[ addedCustomerIndex ];
+
+        /*
+         * Only the enhancements which were not accepted yet add to the totalCost
+         */
+        int[] requirementOffsets = this.nrpInstance.getRequirementOffsets();
+        int[] requirementIndices = this.nrpInstance.getRequirementIndices();
+        double[] enhancementCosts = this.nrpInstance.getEnhancementCosts();
+        for ( int i = requirementOffsets[ addedCustomerIndex ];
+                i < requirementOffsets[ addedCustomerIndex + 1 ]; i++ ) {
+            int enhancementIndex = requirementIndices[ i ];
+
+            if ( this.memory.enhancementCoverage[ enhancementIndex ]++ == 0 ) {
+                this.memory.acceptedEnhancements.set( enhancementIndex );
+                this.totalCost += enhancementCosts[ enhancementIndex ];
+                this.updateResidualCosts( enhancementIndex, -enhancementCosts[ enhancementIndex ] );
+            }
+        }
+    }
+
+    @Override
+    protected void removeAnAcceptedCustomer( int removedCustomerIndex )
+    {
+        if ( !this.memory.acceptedCustomers.get( removedCustomerIndex ) ) {
+            return;
+        }
+
+        this.ensureOwnMemory();
+        this.memory.acceptedCustomers.clear( removedCustomerIndex );
+        this.setInResidualBucket( removedCustomerIndex,
+                this.memory.residualCosts[ removedCustomerIndex ], true );
+        this.setAcceptedRanks( removedCustomerIndex, false );
+        this.toggleFingerprint( removedCustomerIndex );
+        this.totalProfit -= this.nrpInstance.getCustomerProfits()[ removedCustomerIndex ];
+
+        /*
+         * Only the enhancements which no other accepted customer needs are
+         * subtracted from the totalCost
+         */
+        int[] requirementOffsets = this.nrpInstance.getRequirementOffsets();
+        int[] requirementIndices = this.nrpInstance.getRequirementIndices();
+        double[] enhancementCosts = this.nrpInstance.getEnhancementCosts();
+        for ( int i = requirementOffsets[ removedCustomerIndex ];
+                i < requirementOffsets[ removedCustomerIndex + 1 ]; i++ ) {
+            int enhancementIndex = requirementIndices[ i ];
+
+            if ( --this.memory.enhancementCoverage[ enhancementIndex ] == 0 ) {
+                this.memory.acceptedEnhancements.clear( enhancementIndex );
+                this.totalCost -= enhancementCosts[ enhancementIndex ];
+                this.updateResidualCosts( enhancementIndex, enhancementCosts[ enhancementIndex ] );
+            }
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package nrp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The original list-backed solution representation. Every add or remove rebuilds
+ * the lists from scratch, so it is kept as the reference implementation for
+ * {@link BitSetNRPSolution}
+ */
+class ListNRPSolution extends NRPSolution
+{
+    private NRPInstance nrpInstance;
+
+    private List< Integer > acceptedCustomers = new ArrayList<>();
+    private List< Integer > haveNotBeenAcceptedCustomers = new ArrayList<>();
+    private List< Integer > acceptedEnhancements = new ArrayList<>();
+
+    private double totalCost = 0.0;
+    private double totalProfit = 0.0;
+
+    /**
+     * Empty constructor
+     */
+    public ListNRPSolution()
+    {
+    }
+
+    /**
+     * Basic Constructor
+     *
+     * @param nrpInstance
+     */
+    protected ListNRPSolution( NRPInstance nrpInstance )
+    {
+        /*
+         * Create the haveNotBeenAcceptedCustomers list
+         */
+        List< Integer > haveNotBeenAcceptedCustomers = new ArrayList<>();
+        for ( int i = 0; i < nrpInstance.getNumberOfCustomers(); i++ ) {
+            haveNotBeenAcceptedCustomers.add( i );
+        }
+
+        this.nrpInstance = nrpInstance;
+        this.haveNotBeenAcceptedCustomers = haveNotBeenAcceptedCustomers;
+    }
+
+    /**
+     * A copy constructor
+     *
+     * @param nrpSolution
+     */
+    protected ListNRPSolution( ListNRPSolution nrpSolution )
+    {
+        super( nrpSolution );
+
+        this.nrpInstance = nrpSolution.nrpInstance;
+        this.acceptedCustomers = nrpSolution.acceptedCustomers;
+        this.haveNotBeenAcceptedCustomers = nrpSolution.haveNotBeenAcceptedCustomers;
+        this.acceptedEnhancements = nrpSolution.acceptedEnhancements;
+        this.totalCost = nrpSolution.totalCost;
+        this.totalProfit = nrpSolution.totalProfit;
+    }
+
+    @Override
+    protected NRPSolution copy()
+    {
+        return new ListNRPSolution( this );
+    }
+
+    /**
+     * The moved solution is built again from its remaining customers
+     */
+    @Override
+    protected NRPSolution moveTo( NRPInstance nrpInstance, NRPInstanceDelta delta,
+            int[] customerMap )
+    {
+        int[] movedCustomers = new int[ this.acceptedCustomers.size() ];
+        int numberOfMovedCustomers = 0;
+        for ( int customerIndex : this.acceptedCustomers ) {
+            if ( customerMap[ customerIndex ] >= 0 ) {
+                movedCustomers[ numberOfMovedCustomers++ ] = customerMap[ customerIndex ];
+            }
+        }
+
+        ListNRPSolution movedSolution = new ListNRPSolution( nrpInstance );
+        movedSolution.addAcceptedCustomers(
+                Arrays.copyOf( movedCustomers, numberOfMovedCustomers ) );
+
+        return movedSolution;
+    }
+
+    @Override
+    protected NRPInstance getNrpInstance()
+    {
+        return nrpInstance;
+    }
+
+    /**
+     * @return the haveNotBeenAcceptedCustomers
+     */
+    @Override
+    protected int[] getHaveNotBeenAcceptedCustomers()
+    {
+        return ListNRPSolution.toArray( this.haveNotBeenAcceptedCustomers );
+    }
+
+    /**
+     * @return the copy of acceptedCustomers list
+     */
+    @Override
+    protected int[] getAcceptedCustomers()
+    {
+        return ListNRPSolution.toArray( this.acceptedCustomers );
+    }
+
+    @Override
+    protected boolean isAcceptedCustomer( int customerIndex )
+    {
+        return this.acceptedCustomers.contains( customerIndex );
+    }
+
+    @Override
+    protected boolean isAcceptedEnhancement( int enhancementIndex )
+    {
+        return this.acceptedEnhancements.contains( enhancementIndex );
+    }
+
+    /**
+     * @return the copy of acceptedEnhancements list
+     */
+    @Override
+    protected int[] getAcceptedEnhancements()
+    {
+        return ListNRPSolution.toArray( this.acceptedEnhancements );
+    }
+
+    /**
+     * @param list
+     * @return the content of the list as an array
+     */
+    private static int[] toArray( List< Integer > list )
+    {
+        int[] array = new int[ list.size() ];
+        for ( int i = 0; i < array.length; i++ ) {
+            array[ i ] = list.get( i );
+        }
+
+        return array;
+    }
+
+    /**
+     * @return the totalCost
+     */
+    @Override
+    protected double getTotalCost()
+    {
+        return totalCost;
+    }
+
+    /**
+     * @return the totalProfit
+     */
+    @Override
+    protected double getTotalProfit()
+    {
+        return totalProfit;
+    }
+
+    /*
+     * set the totalCost
+     */
+    private void setTotalCost()
+    {
+        double[] enhancementCosts = this.nrpInstance.getEnhancementCosts();
+
+        double totalCost = 0.0;
+        for ( int enhancementIndex : this.acceptedEnhancements ) {
+            totalCost += enhancementCosts[ enhancementIndex ];
+        }
+
+        this.totalCost = totalCost;
+    }
+
+    /*
+     * set the totalProfit
+     */
+    private void setTotalProfit()
+    {
+        double[] customerProfits = this.nrpInstance.getCustomerProfits();
+
+        double totalProfit = 0.0;
+        for ( int customerIndex : this.acceptedCustomers ) {
+            totalProfit += customerProfits[ customerIndex ];
+        }
+
+        this.totalProfit = totalProfit;
+    }
+
+    /**
+     * @param customerIndex
+     * @return the list of the enhancements the customer needs
+     */
+    private List< Integer > getEnhancementsList( int customerIndex )
+    {
+        int[] requirementOffsets = this.nrpInstance.getRequirementOffsets();
+        int[] requirementIndices = this.nrpInstance.getRequirementIndices();
+
+        List< Integer > enhancementsList = new ArrayList<>();
+        for ( int i = requirementOffsets[ customerIndex ];
+                i < requirementOffsets[ customerIndex + 1 ]; i++ ) {
+            enhancementsList.add( requirementIndices[ i ] );
+        }
+
+        return enhancementsList;
+    }
+
+    @Override
+    protected double getMarginalCost( int customerIndex, double budget )
+    {
+        double[] enhancementCosts = this.nrpInstance.getEnhancementCosts();
+
+        List< Integer > customerEnhancementsList = this.getEnhancementsList( customerIndex );
+        customerEnhancementsList.removeAll( this.acceptedEnhancements );
+
+        double marginalCost = 0.0;
+        for ( int enhancementIndex : customerEnhancementsList ) {
+            marginalCost += enhancementCosts[ enhancementIndex ];
+        }
+
+        return marginalCost;
+    }
+
+    /**
+     * @param customerIndex
+     * @param costLimit
+     * @return true if the currentTotalCost isn't exceeding the cost limit, else
+     *         false
+     */
+    @Override
+    protected boolean isSafeAddingACustomer( int customerIndex, double costLimit )
+    {
+        double[] enhancementCosts = this.nrpInstance.getEnhancementCosts();
+
+        List< Integer > copyOfAcceptedEnhancements = new ArrayList<>( this.acceptedEnhancements );
+        for ( Integer enhancementIndex : this.getEnhancementsList( customerIndex ) ) {
+            if ( !copyOfAcceptedEnhancements.contains( enhancementIndex ) ) {
+                copyOfAcceptedEnhancements.add( enhancementIndex );
+            }
+        }
+
+        double currentTotalCost = 0.0;
+        for ( int enhancementIndex : copyOfAcceptedEnhancements ) {
+            currentTotalCost += enhancementCosts[ enhancementIndex ];
+        }
+
+        if ( currentTotalCost <= costLimit ) {
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Add a customer to the acceptedCustomers list
+     *
+     * @param addedCustomerIndex
+     */
+    @Override
+    protected void addAnAcceptedCustomer( int addedCustomerIndex )
+    {
+        List< Integer > acceptedCustomers = new ArrayList<>( this.acceptedCustomers );
+        List< Integer > haveNotBeenAcceptedCustomers
+                = new ArrayList<>( this.haveNotBeenAcceptedCustomers );
+
+        /*
+         * Update the haveNotBeenAcceptedCustomers and acceptedEnhancements list
+         */
+        acceptedCustomers.add( addedCustomerIndex );
+        haveNotBeenAcceptedCustomers.remove( Integer.valueOf( addedCustomerIndex ) );
+        this.toggleFingerprint( addedCustomerIndex );
+
+        this.acceptedCustomers = acceptedCustomers;
+        this.haveNotBeenAcceptedCustomers = haveNotBeenAcceptedCustomers;
+        this.setAcceptedEnhancements();
+        this.setTotalCost();
+        this.setTotalProfit();
+    }
+
+    /**
+     * Remove a customer from the acceptedCustomers list
+     *
+     * @param removedCustomerIndex
+     */
+    @Override
+    protected void removeAnAcceptedCustomer( int removedCustomerIndex )
+    {
+        List< Integer > acceptedCustomers = new ArrayList<>( this.acceptedCustomers );
+        List< Integer > haveNotBeenAcceptedCustomers
+                = new ArrayList<>( this.haveNotBeenAcceptedCustomers );
+
+        /*
+         * Update the haveNotBeenAcceptedCustomers and acceptedEnhancements list
+         */
+        haveNotBeenAcceptedCustomers.add( removedCustomerIndex );
+        acceptedCustomers.remove( Integer.valueOf( removedCustomerIndex ) );
+        this.toggleFingerprint( removedCustomerIndex );
+
+        this.acceptedCustomers = acceptedCustomers;
+        this.haveNotBeenAcceptedCustomers = haveNotBeenAcceptedCustomers;
+        this.setAcceptedEnhancements();
+        this.setTotalCost();
+        this.setTotalProfit();
+    }
+
+    /**
+     * Add several customers, the lists and totals are only rebuilt once
+     *
+     * @param addedCustomerIndices
+     */
+    @Override
+    protected void addAcceptedCustomers( int[] addedCustomerIndices )
+    {
+        List< Integer > acceptedCustomers = new ArrayList<>( this.acceptedCustomers );
+        List< Integer > haveNotBeenAcceptedCustomers
+                = new ArrayList<>( this.haveNotBeenAcceptedCustomers );
+
+        for ( int addedCustomerIndex : addedCustomerIndices ) {
+            acceptedCustomers.add( addedCustomerIndex );
+            haveNotBeenAcceptedCustomers.remove( Integer.valueOf( addedCustomerIndex ) );
+            this.toggleFingerprint( addedCustomerIndex );
+        }
+
+        this.acceptedCustomers = acceptedCustomers;
+        this.haveNotBeenAcceptedCustomers = haveNotBeenAcceptedCustomers;
+        this.setAcceptedEnhancements();
+        this.setTotalCost();
+        this.setTotalProfit();
+    }
+
+    /**
+     * Remove several customers, the lists and totals are only rebuilt once
+     *
+     * @param removedCustomerIndices
+     */
+    @Override
+    protected void removeAcceptedCustomers( int[] removedCustomerIndices )
+    {
+        List< Integer > acceptedCustomers = new ArrayList<>( this.acceptedCustomers );
+        List< Integer > haveNotBeenAcceptedCustomers
+                = new ArrayList<>( this.haveNotBeenAcceptedCustomers );
+
+        for ( int removedCustomerIndex : removedCustomerIndices ) {
+            haveNotBeenAcceptedCustomers.add( removedCustomerIndex );
+            acceptedCustomers.remove( Integer.valueOf( removedCustomerIndex ) );
+            this.toggleFingerprint( removedCustomerIndex );
+        }
+
+        this.acceptedCustomers = acceptedCustomers;
+        this.haveNotBeenAcceptedCustomers = haveNotBeenAcceptedCustomers;
+        this.setAcceptedEnhancements();
+        this.setTotalCost();
+        this.setTotalProfit();
+    }
+
+    /**
+     * Rebuild the acceptedEnhancements list from the acceptedCustomers list
+     */
+    private void setAcceptedEnhancements()
+    {
+        List< Integer > acceptedEnhancements = new ArrayList<>();
+        for ( int customerIndex : this.acceptedCustomers ) {
+            for ( Integer enhancementIndex : this.getEnhancementsList( customerIndex ) ) {
+                if ( !acceptedEnhancements.contains( enhancementIndex ) ) {
+                    acceptedEnhancements.add( enhancementIndex );
+                }
+            }
+        }
+
+        this.acceptedEnhancements = acceptedEnhancements;
+    }
+}
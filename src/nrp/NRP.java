@@ -1,26 +1,38 @@
 package nrp;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
-import java.util.Set;
 
 import AbstractClasses.ProblemDomain;
 import nrp.logger.NRPLogger;
 
 public class NRP extends ProblemDomain
 {
+    private NRPInstanceSource instanceSource = NRPDirectoryInstanceSource.getBundledInstances();
     private NRPInstance nrpInstance;
+    private NRPSolutionType solutionType;
     private NRPSolution[] nrpSolutions = new NRPSolution[ 2 ];
-    private NRPSolution bestSolution = new NRPSolution();
+    private NRPSolution bestSolution = new ListNRPSolution();
 
     public NRP( long seed )
+    {
+        this( seed, NRPSolutionType.BITSET );
+    }
+
+    /**
+     * @param seed
+     * @param solutionType
+     *            the solution representation used by this NRP object
+     */
+    public NRP( long seed, NRPSolutionType solutionType )
     {
         super( seed );
+        this.solutionType = solutionType;
     }
 
     @Override
@@ -45,6 +57,23 @@ public class NRP extends ProblemDomain
                 this.deleteLowestProfitCostRatioAddHighestProfitCostRatio( solutionSourceIndex,
                         solutionDestinationIndex );
                 break;
+            case 4:
+                this.swapLocalSearch( solutionSourceIndex, solutionDestinationIndex );
+                break;
+            case 5:
+                this.addDropLocalSearch( solutionSourceIndex, solutionDestinationIndex );
+                break;
+            case 6:
+            case 7:
+                /*
+                 * A crossover with a single parent, the child is a copy of the parent
+                 */
+                this.setSolution( solutionDestinationIndex,
+                        this.nrpSolutions[ solutionSourceIndex ].copy() );
+                break;
+            case 8:
+                this.ruinAndRecreate( solutionSourceIndex, solutionDestinationIndex );
+                break;
             default:
                 System.err.println( "heuristic does not exist" );
                 System.exit( -1 );
@@ -62,7 +91,7 @@ public class NRP extends ProblemDomain
          */
         if ( this.isBestSolution( currentSolution ) ) {
 
-            this.bestSolution = new NRPSolution( currentSolution );
+            this.setBestSolution( currentSolution );
 
             NRPLogger.logBestSolutionFound( heuristicID, currentSolution.getTotalProfit() );
         } else {
@@ -97,6 +126,23 @@ public class NRP extends ProblemDomain
                 this.deleteLowestProfitCostRatioAddHighestProfitCostRatio( solutionSourceIndex1,
                         solutionDestinationIndex );
                 break;
+            case 4:
+                this.swapLocalSearch( solutionSourceIndex1, solutionDestinationIndex );
+                break;
+            case 5:
+                this.addDropLocalSearch( solutionSourceIndex1, solutionDestinationIndex );
+                break;
+            case 6:
+                this.uniformCrossover( solutionSourceIndex1, solutionSourceIndex2,
+                        solutionDestinationIndex );
+                break;
+            case 7:
+                this.profitCostRatioCrossover( solutionSourceIndex1, solutionSourceIndex2,
+                        solutionDestinationIndex );
+                break;
+            case 8:
+                this.ruinAndRecreate( solutionSourceIndex1, solutionDestinationIndex );
+                break;
             default:
                 System.err.println( "heuristic does not exist" );
                 System.exit( -1 );
@@ -114,7 +160,7 @@ public class NRP extends ProblemDomain
          */
         if ( this.isBestSolution( currentSolution ) ) {
 
-            this.bestSolution = new NRPSolution( currentSolution );
+            this.setBestSolution( currentSolution );
 
             NRPLogger.logBestSolutionFound( heuristicID, currentSolution.getTotalProfit() );
         } else {
@@ -143,49 +189,50 @@ public class NRP extends ProblemDomain
 
     /**
      * Heuristic #1 Randomly delete an accepted customer and add all customer while
-     * the cost is sufficient
+     * the cost is sufficient. Every customer picked counts against the evaluations
+     * allowed by the depthOfSearch
      */
     private void randomDeletionAndFirstAdding( int sourceIndex, int targetIndex )
     {
         /*
          * Get currentSolution and customersList
          */
-        NRPSolution currentSolution = new NRPSolution( this.nrpSolutions[ sourceIndex ] );
-        List< Customer > acceptedCustomers = currentSolution.getAcceptedCustomers();
+        NRPSolution currentSolution = this.nrpSolutions[ sourceIndex ].copy();
+        int[] acceptedCustomers = currentSolution.getAcceptedCustomers();
 
         /*
          * Select a random number between 0 ~ totalAcceptedCustomers
          */
         Random rand = new Random();
-        int totalAcceptedCustomers = acceptedCustomers.size();
+        int totalAcceptedCustomers = acceptedCustomers.length;
         int randomNumberToRmove = rand.nextInt( totalAcceptedCustomers );
 
         /*
          * Remove the selected entry
          */
-        Customer removedCustomer = acceptedCustomers.get( randomNumberToRmove );
+        int removedCustomer = acceptedCustomers[ randomNumberToRmove ];
         currentSolution.removeAnAcceptedCustomer( removedCustomer );
 
         /*
          * Add random customer
          */
-        List< Customer > haveNotBeenAcceptedCustomers
-                = currentSolution.getHaveNotBeenAcceptedCustomers();
-        int totalHaveNotBeenAcceptedCustomers = haveNotBeenAcceptedCustomers.size();
+        int[] haveNotBeenAcceptedCustomers = currentSolution.getHaveNotBeenAcceptedCustomers();
+        int totalHaveNotBeenAcceptedCustomers = haveNotBeenAcceptedCustomers.length;
         double costLimit = this.nrpInstance.getCostLimit();
+        long remainingEvaluations = this.getMaximumEvaluations();
 
         int loopIndex = 0;
         List< Integer > justAcceptedCustomers = new ArrayList<>();
         int randomNumberToAdd;
-        while ( loopIndex < 10 ) {
+        while ( loopIndex < 10 && remainingEvaluations-- > 0 ) {
 
             randomNumberToAdd = rand.nextInt( totalHaveNotBeenAcceptedCustomers );
-            Customer customerToAdd = haveNotBeenAcceptedCustomers.get( randomNumberToAdd );
+            int customerToAdd = haveNotBeenAcceptedCustomers[ randomNumberToAdd ];
 
             if ( currentSolution.isSafeAddingACustomer( customerToAdd, costLimit )
-                    && !justAcceptedCustomers.contains( customerToAdd.getId() ) ) {
+                    && !justAcceptedCustomers.contains( customerToAdd ) ) {
                 currentSolution.addAnAcceptedCustomer( customerToAdd );
-                justAcceptedCustomers.add( customerToAdd.getId() );
+                justAcceptedCustomers.add( customerToAdd );
 
                 loopIndex = 0;
                 continue;
@@ -194,7 +241,7 @@ public class NRP extends ProblemDomain
             loopIndex++;
         }
 
-        this.nrpSolutions[ targetIndex ] = new NRPSolution( currentSolution );
+        this.setSolution( targetIndex, currentSolution );
     }
 
     /**
@@ -203,177 +250,561 @@ public class NRP extends ProblemDomain
      */
     private void deleteHighestCostAddLowestCost( int sourceIndex, int targetIndex )
     {
-        /*
-         * Get currentSolution and customersList
-         */
-        NRPSolution currentSolution = new NRPSolution( this.nrpSolutions[ sourceIndex ] );
-        List< Customer > acceptedCustomers = currentSolution.getAcceptedCustomers();
-
-        Collections.sort( acceptedCustomers, new Comparator< Customer >() {
+        this.deleteFirstAndAddInOrder( sourceIndex, targetIndex,
+                NRPCustomerOrdering.COST_DESCENDING, false );
+    }
 
-            @Override
-            public int compare( Customer cust1, Customer cust2 )
-            {
-                return Double.compare( cust2.getOriginalCost(), cust1.getOriginalCost() );
-            }
+    /**
+     * Heuristic #3 Delete an acceptedCustomer with the lowest profit and add
+     * customer(s) with sufficient fund with the highest profit
+     */
+    private void deleteLowestProfitAddHighestProfit( int sourceIndex, int targetIndex )
+    {
+        this.deleteFirstAndAddInOrder( sourceIndex, targetIndex,
+                NRPCustomerOrdering.PROFIT_ASCENDING, true );
+    }
 
-        } );
+    /**
+     * Heuristic #4 Delete an acceptedCustomer with the lowest profit/cost ratio and
+     * add customer(s) with sufficient fund with the highest profit/cost ratio
+     */
+    private void deleteLowestProfitCostRatioAddHighestProfitCostRatio( int sourceIndex,
+            int targetIndex )
+    {
+        this.deleteFirstAndAddInOrder( sourceIndex, targetIndex,
+                NRPCustomerOrdering.PROFIT_COST_RATIO_ASCENDING, true );
+    }
 
+    /**
+     * Delete the accepted customer which comes first in the ordering, then add every
+     * other customer with sufficient fund in the order of the ordering. The orderings
+     * are precomputed by the instance, so nothing is sorted here, and only the
+     * customers which may fit the remaining budget are tried, within the evaluations
+     * allowed by the depthOfSearch
+     *
+     * @param sourceIndex
+     * @param targetIndex
+     * @param ordering
+     * @param reversed
+     *            true to add the customers from the last of the ordering
+     */
+    private void deleteFirstAndAddInOrder( int sourceIndex, int targetIndex,
+            NRPCustomerOrdering ordering, boolean reversed )
+    {
         /*
-         * Remove the highest cost customer
+         * Get currentSolution and remove the first accepted customer
          */
-        Customer removedCustomer = acceptedCustomers.get( 0 );
-        currentSolution.removeAnAcceptedCustomer( removedCustomer );
+        NRPSolution currentSolution = this.nrpSolutions[ sourceIndex ].copy();
+
+        int removedCustomer = currentSolution.getFirstAcceptedCustomer( ordering );
+        if ( removedCustomer >= 0 ) {
+            currentSolution.removeAnAcceptedCustomer( removedCustomer );
+        }
 
         /*
-         * Reorder the haveNotBeenAcceptedCustomers list from lowest to highest cost
+         * Add all customer if cost is sufficient
          */
-        List< Customer > haveNotBeenAcceptedCustomers
-                = currentSolution.getHaveNotBeenAcceptedCustomers();
-        Collections.sort( haveNotBeenAcceptedCustomers, new Comparator< Customer >() {
-
-            @Override
-            public int compare( Customer cust1, Customer cust2 )
-            {
-                return Double.compare( cust2.getOriginalCost(), cust1.getOriginalCost() );
-            }
+        this.addAffordableCustomers( currentSolution, ordering, reversed, removedCustomer,
+                this.getMaximumEvaluations() );
 
-        } );
+        this.setSolution( targetIndex, currentSolution );
+    }
 
-        /*
-         * Add all customer if cost is sufficient, start from the lowest cost
-         */
+    /**
+     * Heuristic #5 First-improvement swap local search, swap an accepted customer for
+     * a customer with a higher profit which has not been accepted while the cost
+     * stays within the limit. The accepted customers with the lowest profit/cost
+     * ratio are tried first, each against the customers with the highest profit/cost
+     * ratio which may fit once it is removed. The depthOfSearch sets how many
+     * customers are tried on each side and how many moves are evaluated, every move
+     * is scored on the solution without building it. Both sides are walked in the
+     * ranks of the solution one customer at a time, so nothing is sorted and no list
+     * of customers is built
+     */
+    private void swapLocalSearch( int sourceIndex, int targetIndex )
+    {
+        NRPSolution currentSolution = this.nrpSolutions[ sourceIndex ].copy();
         double costLimit = this.nrpInstance.getCostLimit();
-        int removedCustomerID = removedCustomer.getId();
-        for ( Customer customer : haveNotBeenAcceptedCustomers ) {
-            if ( currentSolution.isSafeAddingACustomer( customer, costLimit )
-                    && ( customer.getId() != removedCustomerID ) ) {
-                currentSolution.addAnAcceptedCustomer( customer );
+        double[] customerProfits = this.nrpInstance.getCustomerProfits();
+        NRPCustomerOrdering ordering = NRPCustomerOrdering.PROFIT_COST_RATIO_ASCENDING;
+        int[] customerOrder = this.nrpInstance.getCustomerOrder( ordering );
+        int neighbourhoodSize = 1 + (int) ( this.depthOfSearch * 99 );
+        long remainingEvaluations = this.getMaximumEvaluations();
+
+        boolean isImproved = true;
+        while ( isImproved && remainingEvaluations > 0 ) {
+            isImproved = false;
+
+            int removedRank = currentSolution.getNextAcceptedRank( ordering, 0 );
+            for ( int i = 0; removedRank >= 0 && i < neighbourhoodSize && !isImproved; i++ ) {
+                int removedCustomer = customerOrder[ removedRank ];
+                double budget = costLimit - currentSolution.getTotalCost()
+                        + currentSolution.getFreedCost( removedCustomer );
+
+                int numberOfTries = 0;
+                for ( int addedRank = currentSolution.getPreviousRejectedRank( ordering,
+                        customerOrder.length - 1 ); addedRank >= 0;
+                        addedRank = currentSolution.getPreviousRejectedRank( ordering,
+                                addedRank - 1 ) ) {
+                    if ( numberOfTries >= neighbourhoodSize || remainingEvaluations <= 0 ) {
+                        break;
+                    }
+
+                    int addedCustomer = customerOrder[ addedRank ];
+                    if ( customerProfits[ addedCustomer ] <= customerProfits[ removedCustomer ] ) {
+                        continue;
+                    }
+
+                    /*
+                     * The removal can only raise the marginal cost, a customer which
+                     * doesn't fit now never fits the swap. Such customers are skipped
+                     * without counting them as tries
+                     */
+                    if ( currentSolution.getMarginalCost( addedCustomer, budget ) > budget ) {
+                        continue;
+                    }
+
+                    numberOfTries++;
+                    remainingEvaluations--;
+                    if ( currentSolution.getSwapCost( removedCustomer, addedCustomer )
+                            <= costLimit ) {
+                        currentSolution.removeAnAcceptedCustomer( removedCustomer );
+                        currentSolution.addAnAcceptedCustomer( addedCustomer );
+                        isImproved = true;
+                        break;
+                    }
+                }
+
+                removedRank = currentSolution.getNextAcceptedRank( ordering, removedRank + 1 );
             }
         }
 
-        this.nrpSolutions[ targetIndex ] = new NRPSolution( currentSolution );
+        this.setSolution( targetIndex, currentSolution );
     }
 
     /**
-     * Heuristic #3 Delete an acceptedCustomer with the lowest profit and add
-     * customer(s) with sufficient fund with the highest profit
+     * Heuristic #6 Best-improvement add/drop local search. Each step takes the best
+     * of two moves, adding the affordable candidate with the highest profit, or
+     * dropping an accepted customer with a low profit/cost ratio and refilling the
+     * freed budget from the candidates. Only the candidates, the rejected customers
+     * with the highest profit per residual cost, are scanned, and after a move only
+     * the candidates whose residual cost changed are scored again. The customers
+     * tried for a drop are walked from the ranks of the solution. The depthOfSearch
+     * sets how many candidates are kept, how many customers are tried for a drop and
+     * how many moves are evaluated
      */
-    private void deleteLowestProfitAddHighestProfit( int sourceIndex, int targetIndex )
+    private void addDropLocalSearch( int sourceIndex, int targetIndex )
     {
-        /*
-         * Get currentSolution and customersList
-         */
-        NRPSolution currentSolution = new NRPSolution( this.nrpSolutions[ sourceIndex ] );
-        List< Customer > acceptedCustomers = currentSolution.getAcceptedCustomers();
+        NRPSolution currentSolution = this.nrpSolutions[ sourceIndex ].copy();
+        double costLimit = this.nrpInstance.getCostLimit();
+        double[] customerProfits = this.nrpInstance.getCustomerProfits();
+        NRPCustomerOrdering ordering = NRPCustomerOrdering.PROFIT_COST_RATIO_ASCENDING;
+        int[] customerOrder = this.nrpInstance.getCustomerOrder( ordering );
+        int neighbourhoodSize = 10 + (int) ( this.depthOfSearch * 40 );
+
+        NRPCandidateList candidateList = new NRPCandidateList( neighbourhoodSize );
+        int[] droppedCandidates = new int[ neighbourhoodSize ];
+        double[] freedCosts = new double[ neighbourhoodSize ];
+        int[] refillCustomers = new int[ neighbourhoodSize ];
+        int[] bestRefillCustomers = new int[ neighbourhoodSize ];
+        long remainingEvaluations = this.getMaximumEvaluations();
+
+        while ( remainingEvaluations > 0 ) {
+            double remainingBudget = costLimit - currentSolution.getTotalCost();
+
+            int numberOfDroppedCandidates = 0;
+            double largestFreedCost = 0.0;
+            for ( int rank = currentSolution.getNextAcceptedRank( ordering, 0 );
+                    rank >= 0 && numberOfDroppedCandidates < neighbourhoodSize;
+                    rank = currentSolution.getNextAcceptedRank( ordering, rank + 1 ) ) {
+                int customerIndex = customerOrder[ rank ];
+                droppedCandidates[ numberOfDroppedCandidates ] = customerIndex;
+                freedCosts[ numberOfDroppedCandidates ]
+                        = currentSolution.getFreedCost( customerIndex );
+                largestFreedCost = Math.max( largestFreedCost,
+                        freedCosts[ numberOfDroppedCandidates ] );
+                numberOfDroppedCandidates++;
+            }
 
-        Collections.sort( acceptedCustomers, new Comparator< Customer >() {
+            candidateList.refill( currentSolution, remainingBudget + largestFreedCost );
 
-            @Override
-            public int compare( Customer cust1, Customer cust2 )
-            {
-                return Double.compare( cust1.getProfit(), cust2.getProfit() );
+            /*
+             * 0-1 move, the candidate with the highest profit which fits
+             */
+            int bestAddedCustomer = -1;
+            double bestGain = 0.0;
+            remainingEvaluations -= candidateList.size();
+            for ( int i = 0; i < candidateList.size(); i++ ) {
+                int customerIndex = candidateList.getCustomer( i );
+                if ( customerProfits[ customerIndex ] > bestGain && currentSolution
+                        .getMarginalCost( customerIndex, remainingBudget ) <= remainingBudget ) {
+                    bestAddedCustomer = customerIndex;
+                    bestGain = customerProfits[ customerIndex ];
+                }
             }
 
-        } );
+            /*
+             * 1-0 move, drop a customer and refill from the candidates in order. Each
+             * refill is charged its cost right after the drop, the refills can only
+             * share enhancements, so the actual cost never exceeds the charged one
+             */
+            int bestDroppedCustomer = -1;
+            int numberOfBestRefills = 0;
+            for ( int i = 0; i < numberOfDroppedCandidates; i++ ) {
+                int droppedCustomer = droppedCandidates[ i ];
+                double baseCost = currentSolution.getTotalCost() - freedCosts[ i ];
+                double budget = costLimit - baseCost;
+
+                double gain = -customerProfits[ droppedCustomer ];
+                int numberOfRefills = 0;
+                remainingEvaluations -= candidateList.size();
+                for ( int j = 0; j < candidateList.size(); j++ ) {
+                    int customerIndex = candidateList.getCustomer( j );
+                    double refillCost
+                            = currentSolution.getSwapCost( droppedCustomer, customerIndex )
+                                    - baseCost;
+                    if ( refillCost <= budget ) {
+                        budget -= refillCost;
+                        gain += customerProfits[ customerIndex ];
+                        refillCustomers[ numberOfRefills++ ] = customerIndex;
+                    }
+                }
 
-        /*
-         * Remove the lowest profit customer
-         */
-        Customer removedCustomer = acceptedCustomers.get( 0 );
-        currentSolution.removeAnAcceptedCustomer( removedCustomer );
+                if ( gain > bestGain ) {
+                    bestAddedCustomer = -1;
+                    bestDroppedCustomer = droppedCustomer;
+                    bestGain = gain;
+                    numberOfBestRefills = numberOfRefills;
+                    System.arraycopy( refillCustomers, 0, bestRefillCustomers, 0, numberOfRefills );
+                }
+            }
 
-        /*
-         * Reorder the haveNotBeenAcceptedCustomers list from highest to lowest profit
-         */
-        List< Customer > haveNotBeenAcceptedCustomers
-                = currentSolution.getHaveNotBeenAcceptedCustomers();
-        Collections.sort( haveNotBeenAcceptedCustomers, new Comparator< Customer >() {
-
-            @Override
-            public int compare( Customer cust1, Customer cust2 )
-            {
-                return Double.compare( cust2.getProfit(), cust1.getProfit() );
+            if ( bestAddedCustomer >= 0 ) {
+                candidateList.markMovedCustomer( currentSolution, bestAddedCustomer );
+                currentSolution.addAnAcceptedCustomer( bestAddedCustomer );
+            } else if ( bestDroppedCustomer >= 0 ) {
+                candidateList.markMovedCustomer( currentSolution, bestDroppedCustomer );
+                for ( int i = 0; i < numberOfBestRefills; i++ ) {
+                    candidateList.markMovedCustomer( currentSolution, bestRefillCustomers[ i ] );
+                }
+
+                currentSolution.removeAnAcceptedCustomer( bestDroppedCustomer );
+                for ( int i = 0; i < numberOfBestRefills; i++ ) {
+                    currentSolution.addAnAcceptedCustomer( bestRefillCustomers[ i ] );
+                }
+            } else {
+                break;
             }
 
-        } );
+            candidateList.update( currentSolution );
+        }
 
-        /*
-         * Add all customer if cost is sufficient, start from the highest profit
-         */
-        double costLimit = this.nrpInstance.getCostLimit();
-        int removedCustomerID = removedCustomer.getId();
-        for ( Customer customer : haveNotBeenAcceptedCustomers ) {
-            if ( currentSolution.isSafeAddingACustomer( customer, costLimit )
-                    && ( customer.getId() != removedCustomerID ) ) {
-                currentSolution.addAnAcceptedCustomer( customer );
+        this.setSolution( targetIndex, currentSolution );
+    }
+
+    /**
+     * Heuristic #7 Uniform crossover, the child keeps the customers both parents
+     * accept and takes every customer only one parent accepts with a probability of
+     * 0.5. The customers are added to the child in one batch, then it is repaired
+     * within the evaluations allowed by the depthOfSearch
+     */
+    private void uniformCrossover( int sourceIndex1, int sourceIndex2, int targetIndex )
+    {
+        BitSet acceptedCustomers1 = this.nrpSolutions[ sourceIndex1 ].getAcceptedCustomerSet();
+        BitSet acceptedCustomers2 = this.nrpSolutions[ sourceIndex2 ].getAcceptedCustomerSet();
+
+        BitSet childCustomers = (BitSet) acceptedCustomers1.clone();
+        childCustomers.and( acceptedCustomers2 );
+        acceptedCustomers1.xor( acceptedCustomers2 );
+        for ( int i = acceptedCustomers1.nextSetBit( 0 ); i >= 0;
+                i = acceptedCustomers1.nextSetBit( i + 1 ) ) {
+            if ( this.rng.nextBoolean() ) {
+                childCustomers.set( i );
             }
         }
 
-        this.nrpSolutions[ targetIndex ] = new NRPSolution( currentSolution );
+        NRPSolution childSolution = this.createEmptySolution();
+        childSolution.addAcceptedCustomers( childCustomers.stream().toArray() );
+
+        this.repairSolution( childSolution, this.getMaximumEvaluations() );
+
+        this.setSolution( targetIndex, childSolution );
     }
 
     /**
-     * Heuristic #4 Delete an acceptedCustomer with the lowest profit/cost ratio and
-     * add customer(s) with sufficient fund with the highest profit/cost ratio
+     * Heuristic #8 Profit/cost ratio crossover, the child keeps the customers both
+     * parents accept, then adds the customers only one parent accepts with the
+     * highest profit/cost ratio first while they fit. The customers are picked
+     * against a set of the accepted enhancements and added to the child in one batch,
+     * then it is repaired within the evaluations allowed by the depthOfSearch
      */
-    private void deleteLowestProfitCostRatioAddHighestProfitCostRatio( int sourceIndex,
+    private void profitCostRatioCrossover( int sourceIndex1, int sourceIndex2,
             int targetIndex )
     {
+        double costLimit = this.nrpInstance.getCostLimit();
+        BitSet acceptedCustomers1 = this.nrpSolutions[ sourceIndex1 ].getAcceptedCustomerSet();
+        BitSet acceptedCustomers2 = this.nrpSolutions[ sourceIndex2 ].getAcceptedCustomerSet();
+
         /*
-         * Get currentSolution and customersList
+         * The common customers are accepted by a feasible parent, so they always fit
          */
-        NRPSolution currentSolution = new NRPSolution( this.nrpSolutions[ sourceIndex ] );
-        List< Customer > acceptedCustomers = currentSolution.getAcceptedCustomers();
-
-        Collections.sort( acceptedCustomers, new Comparator< Customer >() {
+        BitSet commonCustomers = (BitSet) acceptedCustomers1.clone();
+        commonCustomers.and( acceptedCustomers2 );
+        acceptedCustomers1.xor( acceptedCustomers2 );
+
+        int[] childCustomers = new int[ this.nrpInstance.getNumberOfCustomers() ];
+        int numberOfChildCustomers = 0;
+        BitSet acceptedEnhancementSet = new BitSet( this.nrpInstance.getNumberOfEnhancements() );
+        double remainingBudget = costLimit;
+        for ( int i = commonCustomers.nextSetBit( 0 ); i >= 0;
+                i = commonCustomers.nextSetBit( i + 1 ) ) {
+            remainingBudget -= this.getMarginalCost( i, acceptedEnhancementSet );
+            this.acceptEnhancements( i, acceptedEnhancementSet );
+            childCustomers[ numberOfChildCustomers++ ] = i;
+        }
 
-            @Override
-            public int compare( Customer cust1, Customer cust2 )
-            {
-                return Double.compare( cust1.getProfit() / cust1.getOriginalCost(),
-                        cust2.getProfit() / cust2.getOriginalCost() );
+        int[] otherCustomers = this.sortCustomers( acceptedCustomers1.stream().toArray(),
+                NRPCustomerOrdering.PROFIT_COST_RATIO_ASCENDING );
+        for ( int i = otherCustomers.length - 1; i >= 0; i-- ) {
+            int customer = otherCustomers[ i ];
+            double marginalCost = this.getMarginalCost( customer, acceptedEnhancementSet );
+            if ( marginalCost <= remainingBudget ) {
+                this.acceptEnhancements( customer, acceptedEnhancementSet );
+                remainingBudget -= marginalCost;
+                childCustomers[ numberOfChildCustomers++ ] = customer;
             }
+        }
 
-        } );
+        NRPSolution childSolution = this.createEmptySolution();
+        childSolution.addAcceptedCustomers(
+                Arrays.copyOf( childCustomers, numberOfChildCustomers ) );
 
-        /*
-         * Remove the lowest profit profit/cost ratio
-         */
-        Customer removedCustomer = acceptedCustomers.get( 0 );
-        currentSolution.removeAnAcceptedCustomer( removedCustomer );
+        this.repairSolution( childSolution, this.getMaximumEvaluations() );
+
+        this.setSolution( targetIndex, childSolution );
+    }
+
+    /**
+     * Heuristic #9 Ruin and recreate, remove a share of the accepted customers set by
+     * the intensityOfMutation, either at random or as a cluster of customers which
+     * share enhancements. The solution is rebuilt in profit/cost ratio order, first
+     * from the customers which were not removed and then from the removed ones. The
+     * customers to add are picked against a copy of the accepted enhancements and
+     * added to the solution in one batch. The customers which fit count against the
+     * evaluations allowed by the depthOfSearch
+     */
+    private void ruinAndRecreate( int sourceIndex, int targetIndex )
+    {
+        NRPSolution currentSolution = this.nrpSolutions[ sourceIndex ].copy();
+        double costLimit = this.nrpInstance.getCostLimit();
 
         /*
-         * Reorder the haveNotBeenAcceptedCustomers from highest to lowest profit/cost
-         * ratio
+         * Sorted, so the same customers are picked whatever the representation
          */
-        List< Customer > haveNotBeenAcceptedCustomers
-                = currentSolution.getHaveNotBeenAcceptedCustomers();
-        Collections.sort( haveNotBeenAcceptedCustomers, new Comparator< Customer >() {
-
-            @Override
-            public int compare( Customer cust1, Customer cust2 )
-            {
-                return Double.compare( cust2.getProfit() / cust2.getOriginalCost(),
-                        cust1.getProfit() / cust1.getOriginalCost() );
+        int[] acceptedCustomers = currentSolution.getAcceptedCustomers();
+        Arrays.sort( acceptedCustomers );
+
+        int numberOfRemovedCustomers = Math.max( 1,
+                (int) Math.round( this.intensityOfMutation * acceptedCustomers.length ) );
+        numberOfRemovedCustomers = Math.min( numberOfRemovedCustomers, acceptedCustomers.length );
+
+        int[] removedCustomers = this.rng.nextBoolean()
+                ? this.getRandomCustomers( acceptedCustomers, numberOfRemovedCustomers )
+                : this.getCustomerCluster( currentSolution.getAcceptedCustomerSet(),
+                        acceptedCustomers, numberOfRemovedCustomers );
+        currentSolution.removeAcceptedCustomers( removedCustomers );
+
+        BitSet removedCustomerSet = new BitSet( this.nrpInstance.getNumberOfCustomers() );
+        for ( int customerIndex : removedCustomers ) {
+            removedCustomerSet.set( customerIndex );
+        }
+
+        BitSet acceptedEnhancementSet = new BitSet( this.nrpInstance.getNumberOfEnhancements() );
+        for ( int enhancementIndex : currentSolution.getAcceptedEnhancements() ) {
+            acceptedEnhancementSet.set( enhancementIndex );
+        }
+        double remainingBudget = costLimit - currentSolution.getTotalCost();
+        long remainingEvaluations = this.getMaximumEvaluations();
+
+        int[] addedCustomers = new int[ this.nrpInstance.getNumberOfCustomers() ];
+        int numberOfAddedCustomers = 0;
+        for ( int customer : currentSolution.getAffordableCustomers(
+                NRPCustomerOrdering.PROFIT_COST_RATIO_ASCENDING, true, remainingBudget ) ) {
+            if ( !removedCustomerSet.get( customer ) ) {
+                double marginalCost = this.getMarginalCost( customer, acceptedEnhancementSet );
+                if ( marginalCost <= remainingBudget && remainingEvaluations-- > 0 ) {
+                    this.acceptEnhancements( customer, acceptedEnhancementSet );
+                    remainingBudget -= marginalCost;
+                    addedCustomers[ numberOfAddedCustomers++ ] = customer;
+                }
             }
+        }
 
-        } );
+        int[] sortedRemovedCustomers = this.sortCustomers( removedCustomers,
+                NRPCustomerOrdering.PROFIT_COST_RATIO_ASCENDING );
+        for ( int i = sortedRemovedCustomers.length - 1; i >= 0; i-- ) {
+            int customer = sortedRemovedCustomers[ i ];
+            double marginalCost = this.getMarginalCost( customer, acceptedEnhancementSet );
+            if ( marginalCost <= remainingBudget && remainingEvaluations-- > 0 ) {
+                this.acceptEnhancements( customer, acceptedEnhancementSet );
+                remainingBudget -= marginalCost;
+                addedCustomers[ numberOfAddedCustomers++ ] = customer;
+            }
+        }
+
+        currentSolution.addAcceptedCustomers(
+                Arrays.copyOf( addedCustomers, numberOfAddedCustomers ) );
+
+        this.setSolution( targetIndex, currentSolution );
+    }
+
+    /**
+     * @param customerIndex
+     * @param acceptedEnhancementSet
+     * @return the cost of the requirements of the customer which are not in the set
+     */
+    private double getMarginalCost( int customerIndex, BitSet acceptedEnhancementSet )
+    {
+        int[] requirementOffsets = this.nrpInstance.getRequirementOffsets();
+        int[] requirementIndices = this.nrpInstance.getRequirementIndices();
+        double[] enhancementCosts = this.nrpInstance.getEnhancementCosts();
+
+        double marginalCost = 0.0;
+        for ( int i = requirementOffsets[ customerIndex ];
+                i < requirementOffsets[ customerIndex + 1 ]; i++ ) {
+            if ( !acceptedEnhancementSet.get( requirementIndices[ i ] ) ) {
+                marginalCost += enhancementCosts[ requirementIndices[ i ] ];
+            }
+        }
+
+        return marginalCost;
+    }
+
+    /**
+     * Add the requirements of the customer to the set
+     *
+     * @param customerIndex
+     * @param acceptedEnhancementSet
+     */
+    private void acceptEnhancements( int customerIndex, BitSet acceptedEnhancementSet )
+    {
+        int[] requirementOffsets = this.nrpInstance.getRequirementOffsets();
+        int[] requirementIndices = this.nrpInstance.getRequirementIndices();
+
+        for ( int i = requirementOffsets[ customerIndex ];
+                i < requirementOffsets[ customerIndex + 1 ]; i++ ) {
+            acceptedEnhancementSet.set( requirementIndices[ i ] );
+        }
+    }
+
+    /**
+     * @param customers
+     * @param numberOfCustomers
+     * @return numberOfCustomers of the customers picked at random
+     */
+    private int[] getRandomCustomers( int[] customers, int numberOfCustomers )
+    {
+        int[] randomCustomers = customers.clone();
+        for ( int i = 0; i < numberOfCustomers; i++ ) {
+            int j = i + this.rng.nextInt( randomCustomers.length - i );
+            int customerIndex = randomCustomers[ j ];
+            randomCustomers[ j ] = randomCustomers[ i ];
+            randomCustomers[ i ] = customerIndex;
+        }
+
+        return Arrays.copyOf( randomCustomers, numberOfCustomers );
+    }
+
+    /**
+     * Grow a cluster from a random accepted customer through the enhancements the
+     * customers share, a new random customer is taken when the cluster can't grow
+     *
+     * @param acceptedCustomerSet
+     * @param acceptedCustomers
+     * @param numberOfCustomers
+     * @return numberOfCustomers of the accepted customers
+     */
+    private int[] getCustomerCluster( BitSet acceptedCustomerSet, int[] acceptedCustomers,
+            int numberOfCustomers )
+    {
+        int[] requirementOffsets = this.nrpInstance.getRequirementOffsets();
+        int[] requirementIndices = this.nrpInstance.getRequirementIndices();
+        int[] enhancementCustomerOffsets = this.nrpInstance.getEnhancementCustomerOffsets();
+        int[] enhancementCustomerIndices = this.nrpInstance.getEnhancementCustomerIndices();
 
         /*
-         * Add all customer if cost is sufficient, start from the highest profit/cost
-         * ratio
+         * The cluster doubles as the queue of the breadth first search, customers
+         * are cleared from acceptedCustomerSet once they join it
          */
-        double costLimit = this.nrpInstance.getCostLimit();
-        int removedCustomerID = removedCustomer.getId();
-        for ( Customer customer : haveNotBeenAcceptedCustomers ) {
-            if ( currentSolution.isSafeAddingACustomer( customer, costLimit )
-                    && ( customer.getId() != removedCustomerID ) ) {
-                currentSolution.addAnAcceptedCustomer( customer );
+        int[] cluster = new int[ numberOfCustomers ];
+        int size = 0;
+        int head = 0;
+        while ( size < numberOfCustomers ) {
+            if ( head == size ) {
+                int seed;
+                do {
+                    seed = acceptedCustomers[ this.rng.nextInt( acceptedCustomers.length ) ];
+                } while ( !acceptedCustomerSet.get( seed ) );
+
+                acceptedCustomerSet.clear( seed );
+                cluster[ size++ ] = seed;
+                continue;
+            }
+
+            int customerIndex = cluster[ head++ ];
+            for ( int i = requirementOffsets[ customerIndex ];
+                    i < requirementOffsets[ customerIndex + 1 ] && size < numberOfCustomers;
+                    i++ ) {
+                int enhancementIndex = requirementIndices[ i ];
+                for ( int j = enhancementCustomerOffsets[ enhancementIndex ];
+                        j < enhancementCustomerOffsets[ enhancementIndex + 1 ]
+                                && size < numberOfCustomers;
+                        j++ ) {
+                    int otherCustomer = enhancementCustomerIndices[ j ];
+                    if ( acceptedCustomerSet.get( otherCustomer ) ) {
+                        acceptedCustomerSet.clear( otherCustomer );
+                        cluster[ size++ ] = otherCustomer;
+                    }
+                }
             }
         }
 
-        this.nrpSolutions[ targetIndex ] = new NRPSolution( currentSolution );
+        return cluster;
+    }
+
+    /**
+     * @return the number of moves a heuristic may evaluate in one call, from once to a
+     *         hundred times the number of customers as the depthOfSearch goes from 0
+     *         to 1
+     */
+    private long getMaximumEvaluations()
+    {
+        return (long) ( ( 1 + this.depthOfSearch * 99 )
+                * this.nrpInstance.getNumberOfCustomers() );
+    }
+
+    /**
+     * @param customers
+     * @param ordering
+     * @return the customers in the ordering
+     */
+    private int[] sortCustomers( int[] customers, NRPCustomerOrdering ordering )
+    {
+        int[] customerOrder = this.nrpInstance.getCustomerOrder( ordering );
+        int[] customerRanks = this.nrpInstance.getCustomerRanks( ordering );
+
+        int[] ranks = new int[ customers.length ];
+        for ( int i = 0; i < customers.length; i++ ) {
+            ranks[ i ] = customerRanks[ customers[ i ] ];
+        }
+        Arrays.sort( ranks );
+
+        int[] sortedCustomers = new int[ customers.length ];
+        for ( int i = 0; i < customers.length; i++ ) {
+            sortedCustomers[ i ] = customerOrder[ ranks[ i ] ];
+        }
+
+        return sortedCustomers;
     }
 
     @Override
@@ -386,19 +817,60 @@ public class NRP extends ProblemDomain
     @Override
     public boolean compareSolutions( int solutionIndex1, int solutionIndex2 )
     {
-        List< Customer > solution1 = this.nrpSolutions[ solutionIndex1 ].getAcceptedCustomers();
-        Set< Customer > solution1Set = new HashSet<>( solution1 );
-        List< Customer > solution2 = this.nrpSolutions[ solutionIndex2 ].getAcceptedCustomers();
-        Set< Customer > solution2Set = new HashSet<>( solution2 );
+        return this.nrpSolutions[ solutionIndex1 ]
+                .hasSameAcceptedCustomers( this.nrpSolutions[ solutionIndex2 ] );
+    }
 
-        return solution1Set.equals( solution2Set );
+    /**
+     * Solutions which accept the same customers always have the same fingerprint,
+     * so hyper-heuristics can use it to detect duplicates in a population
+     *
+     * @param solutionIndex
+     * @return the fingerprint of the accepted customers of the solution
+     */
+    public long getSolutionFingerprint( int solutionIndex )
+    {
+        return this.nrpSolutions[ solutionIndex ].getFingerprint();
     }
 
     @Override
     public void copySolution( int solutionSourceIndex, int solutionDestinationIndex )
     {
-        this.nrpSolutions[ solutionDestinationIndex ]
-                = new NRPSolution( this.nrpSolutions[ solutionSourceIndex ] );
+        if ( solutionSourceIndex != solutionDestinationIndex ) {
+            this.setSolution( solutionDestinationIndex,
+                    this.nrpSolutions[ solutionSourceIndex ].copy() );
+        }
+    }
+
+    /**
+     * Put the solution in the memory, the solution it replaces is released so the
+     * solutions it shared its memory with don't copy it on their next write
+     *
+     * @param solutionIndex
+     * @param nrpSolution
+     */
+    private void setSolution( int solutionIndex, NRPSolution nrpSolution )
+    {
+        NRPSolution replacedSolution = this.nrpSolutions[ solutionIndex ];
+        this.nrpSolutions[ solutionIndex ] = nrpSolution;
+
+        if ( replacedSolution != null && replacedSolution != nrpSolution ) {
+            replacedSolution.release();
+        }
+    }
+
+    /**
+     * Keep a copy of the solution as the best solution, the previous best solution
+     * is released
+     *
+     * @param nrpSolution
+     */
+    private void setBestSolution( NRPSolution nrpSolution )
+    {
+        NRPSolution replacedSolution = this.bestSolution;
+        this.bestSolution = nrpSolution.copy();
+
+        replacedSolution.release();
     }
 
     @Override
@@ -421,13 +893,13 @@ public class NRP extends ProblemDomain
             return new int[] { 0, 1, 2, 3 };
         }
         if ( heuristicType == ProblemDomain.HeuristicType.RUIN_RECREATE ) {
-            return new int[ 0 ];
+            return new int[] { 8 };
         }
         if ( heuristicType == ProblemDomain.HeuristicType.LOCAL_SEARCH ) {
-            return new int[ 0 ];
+            return new int[] { 4, 5 };
         }
         if ( heuristicType == ProblemDomain.HeuristicType.CROSSOVER ) {
-            return new int[ 0 ];
+            return new int[] { 6, 7 };
         }
 
         return null;
@@ -436,43 +908,43 @@ public class NRP extends ProblemDomain
     @Override
     public int[] getHeuristicsThatUseDepthOfSearch()
     {
-        // TODO Auto-generated method stub
-        return null;
+        return new int[] { 4, 5, 6, 7 };
     }
 
     @Override
     public int[] getHeuristicsThatUseIntensityOfMutation()
     {
-        // TODO Auto-generated method stub
-        return null;
+        return new int[] { 8 };
     }
 
     @Override
     public int getNumberOfHeuristics()
     {
-        return 4;
+        return 9;
     }
 
     @Override
     public int getNumberOfInstances()
     {
-        return 15;
+        return this.instanceSource.getNumberOfInstances();
     }
 
     @Override
     public void initialiseSolution( int solutionIndex )
     {
-        NRPSolution initialSolution = new NRPSolution( this.nrpInstance.getCustomersList() );
+        NRPSolution initialSolution = this.createEmptySolution();
         double costLimit = this.nrpInstance.getCostLimit();
 
-        List< Customer > haveNotBeenAcceptedCustomers
-                = initialSolution.getHaveNotBeenAcceptedCustomers();
+        List< Integer > haveNotBeenAcceptedCustomers = new ArrayList<>();
+        for ( int customer : initialSolution.getHaveNotBeenAcceptedCustomers() ) {
+            haveNotBeenAcceptedCustomers.add( customer );
+        }
         Collections.shuffle( haveNotBeenAcceptedCustomers );
-        
-        Iterator< Customer > customersIterator = haveNotBeenAcceptedCustomers.iterator();
+
+        Iterator< Integer > customersIterator = haveNotBeenAcceptedCustomers.iterator();
         if ( customersIterator.hasNext() ) {
-            Customer customer = customersIterator.next();
-            
+            int customer = customersIterator.next();
+
             initialSolution.addAnAcceptedCustomer( customer );
 
             while ( customersIterator.hasNext() ) {
@@ -484,23 +956,287 @@ public class NRP extends ProblemDomain
             }
         }
 
-        this.nrpSolutions[ solutionIndex ] = new NRPSolution( initialSolution );
+        this.setSolution( solutionIndex, initialSolution );
 
         /*
          * Verify whether current solution is best solution or not
          */
         NRPSolution currentSolution = this.nrpSolutions[ solutionIndex ];
         if ( this.isBestSolution( currentSolution ) ) {
-            this.bestSolution = new NRPSolution( currentSolution );
-            
+            this.setBestSolution( currentSolution );
+
             NRPLogger.logInitialiseSolution( currentSolution.getTotalProfit() );
         }
     }
 
+    /**
+     * Seed a solution from the accepted customers of an earlier run, e.g. the result
+     * of getBestSolutionCustomerIds() on the previous planning cycle. A solution which
+     * fits the current cost limit is loaded as it is, one which doesn't fit any more
+     * loses its customers with the lowest profit/cost ratio until it does. A duplicate
+     * id is only accepted once
+     *
+     * @param solutionIndex
+     * @param customerIds
+     *            the ids of the accepted customers, from 1
+     * @throws IllegalArgumentException
+     *             if a customer doesn't exist
+     */
+    public void loadSolution( int solutionIndex, int[] customerIds )
+    {
+        BitSet customerSet = new BitSet( this.nrpInstance.getNumberOfCustomers() );
+        for ( int customerId : customerIds ) {
+            if ( customerId < 1 || customerId > this.nrpInstance.getNumberOfCustomers() ) {
+                throw new IllegalArgumentException( "customer " + customerId + " does not exist" );
+            }
+
+            customerSet.set( customerId - 1 );
+        }
+
+        NRPSolution loadedSolution = this.createEmptySolution();
+        loadedSolution.addAcceptedCustomers( customerSet.stream().toArray() );
+
+        this.removeCustomersOverLimit( loadedSolution );
+        this.setSolution( solutionIndex, loadedSolution );
+
+        /*
+         * Verify whether current solution is best solution or not
+         */
+        if ( this.isBestSolution( loadedSolution ) ) {
+            this.setBestSolution( loadedSolution );
+
+            NRPLogger.logInitialiseSolution( loadedSolution.getTotalProfit() );
+        }
+    }
+
+    /**
+     * @return the ids of the accepted customers of the best solution, from 1 and
+     *         sorted, which loadSolution takes back
+     */
+    public int[] getBestSolutionCustomerIds()
+    {
+        return NRP.toSortedIds( this.bestSolution.getAcceptedCustomers() );
+    }
+
+    /**
+     * @param solutionIndex
+     * @return the ids of the accepted customers of the solution, from 1 and sorted
+     */
+    public int[] getSolutionCustomerIds( int solutionIndex )
+    {
+        return NRP.toSortedIds( this.nrpSolutions[ solutionIndex ].getAcceptedCustomers() );
+    }
+
+    /**
+     * @param indices
+     * @return the ids (index + 1) in ascending order
+     */
+    private static int[] toSortedIds( int[] indices )
+    {
+        int[] ids = new int[ indices.length ];
+        for ( int i = 0; i < indices.length; i++ ) {
+            ids[ i ] = indices[ i ] + 1;
+        }
+        Arrays.sort( ids );
+
+        return ids;
+    }
+
+    /**
+     * @param index
+     *            the id of the instance in the instance source, from 1
+     * @throws java.io.UncheckedIOException
+     *             if the instance can't be read or is malformed
+     * @throws IllegalArgumentException
+     *             if the instance source has no instance with the id
+     */
     @Override
     public void loadInstance( int index )
     {
-        this.nrpInstance = new NRPInstance( index );
+        this.nrpInstance = NRPInstanceRegistry.get( this.instanceSource, index );
+    }
+
+    /**
+     * @param instanceName
+     *            the name of the instance in the instance source
+     */
+    public void loadInstance( String instanceName )
+    {
+        int instanceId = this.instanceSource.getInstanceId( instanceName );
+        if ( instanceId < 0 ) {
+            throw new IllegalArgumentException( "instance " + instanceName + " does not exist" );
+        }
+
+        this.loadInstance( instanceId );
+    }
+
+    /**
+     * Apply the changes of the next planning cycle to the loaded instance. The
+     * solutions in memory and the best solution are moved to the new instance and
+     * repaired, so the search goes on from them instead of starting again. The
+     * instance shared through the registry is left as it is
+     *
+     * @param delta
+     */
+    public void applyInstanceDelta( NRPInstanceDelta delta )
+    {
+        int[] customerMap = delta.getCustomerMap( this.nrpInstance.getNumberOfCustomers() );
+        this.nrpInstance = this.nrpInstance.apply( delta );
+
+        for ( int i = 0; i < this.nrpSolutions.length; i++ ) {
+            if ( this.nrpSolutions[ i ] != null ) {
+                this.nrpSolutions[ i ]
+                        = this.moveSolution( this.nrpSolutions[ i ], delta, customerMap );
+            }
+        }
+
+        /*
+         * The profits may have changed, so the best solution is the best of the moved
+         * solutions
+         */
+        if ( this.bestSolution.getNrpInstance() != null ) {
+            this.bestSolution = this.moveSolution( this.bestSolution, delta, customerMap );
+        }
+        for ( NRPSolution nrpSolution : this.nrpSolutions ) {
+            if ( nrpSolution != null && this.isBestSolution( nrpSolution ) ) {
+                this.setBestSolution( nrpSolution );
+            }
+        }
+    }
+
+    /**
+     * @param nrpSolution
+     *            a solution of the previous instance
+     * @param delta
+     *            the delta applied to the previous instance
+     * @param customerMap
+     *            the index of every customer of the previous instance, -1 if removed
+     * @return the solution with the same remaining customers in the current instance,
+     *         repaired
+     */
+    private NRPSolution moveSolution( NRPSolution nrpSolution, NRPInstanceDelta delta,
+            int[] customerMap )
+    {
+        NRPSolution movedSolution = nrpSolution.moveTo( this.nrpInstance, delta, customerMap );
+
+        this.repairSolution( movedSolution, Long.MAX_VALUE );
+
+        return movedSolution;
+    }
+
+    /**
+     * Remove the accepted customers with the lowest profit/cost ratio while the
+     * solution is over the cost limit, then add the customers with the highest
+     * profit/cost ratio which still fit. Only the customers to add count against the
+     * evaluations, the solution is always brought within the cost limit
+     *
+     * @param nrpSolution
+     * @param maximumEvaluations
+     *            the number of customers which may be added
+     */
+    private void repairSolution( NRPSolution nrpSolution, long maximumEvaluations )
+    {
+        this.removeCustomersOverLimit( nrpSolution );
+
+        this.addAffordableCustomers( nrpSolution,
+                NRPCustomerOrdering.PROFIT_COST_RATIO_ASCENDING, true, -1, maximumEvaluations );
+    }
+
+    /**
+     * Add the customers which fit the cost limit in the order of the ordering. Only
+     * the customers which fit count against the evaluations, the affordable customers
+     * of a representation may include some which do not, and both representations
+     * have to stop at the same customer
+     *
+     * @param nrpSolution
+     * @param ordering
+     * @param reversed
+     *            true to add the customers from the last of the ordering
+     * @param skippedCustomer
+     *            a customer which is not added, -1 for none
+     * @param maximumEvaluations
+     *            the number of customers which may be added
+     */
+    private void addAffordableCustomers( NRPSolution nrpSolution, NRPCustomerOrdering ordering,
+            boolean reversed, int skippedCustomer, long maximumEvaluations )
+    {
+        double costLimit = this.nrpInstance.getCostLimit();
+
+        for ( int customer : nrpSolution.getAffordableCustomers( ordering, reversed,
+                costLimit - nrpSolution.getTotalCost() ) ) {
+            if ( maximumEvaluations <= 0 ) {
+                break;
+            }
+
+            if ( nrpSolution.isSafeAddingACustomer( customer, costLimit )
+                    && ( customer != skippedCustomer ) ) {
+                nrpSolution.addAnAcceptedCustomer( customer );
+                maximumEvaluations--;
+            }
+        }
+    }
+
+    /**
+     * Remove the accepted customers with the lowest profit/cost ratio while the
+     * solution is over the cost limit, a solution which fits is left as it is
+     *
+     * @param nrpSolution
+     */
+    private void removeCustomersOverLimit( NRPSolution nrpSolution )
+    {
+        double costLimit = this.nrpInstance.getCostLimit();
+
+        while ( nrpSolution.getTotalCost() > costLimit ) {
+            int removedCustomer = nrpSolution
+                    .getFirstAcceptedCustomer( NRPCustomerOrdering.PROFIT_COST_RATIO_ASCENDING );
+            if ( removedCustomer < 0 ) {
+                break;
+            }
+
+            nrpSolution.removeAnAcceptedCustomer( removedCustomer );
+        }
+    }
+
+    /**
+     * @return the instanceSource
+     */
+    public NRPInstanceSource getInstanceSource()
+    {
+        return instanceSource;
+    }
+
+    /**
+     * Instances are loaded from the bundled instance directory unless another source
+     * is set, the source has to be set before loadInstance
+     *
+     * @param instanceSource
+     *            the instanceSource to set
+     */
+    public void setInstanceSource( NRPInstanceSource instanceSource )
+    {
+        this.instanceSource = instanceSource;
+    }
+
+    /**
+     * @return the solutionType
+     */
+    public NRPSolutionType getSolutionType()
+    {
+        return solutionType;
+    }
+
+    /**
+     * @return a solution of the selected solutionType without accepted customers
+     */
+    private NRPSolution createEmptySolution()
+    {
+        switch ( this.solutionType ) {
+            case LIST:
+                return new ListNRPSolution( this.nrpInstance );
+            case BITSET:
+            default:
+                return new BitSetNRPSolution( this.nrpInstance );
+        }
     }
 
     @Override
@@ -512,6 +1248,8 @@ public class NRP extends ProblemDomain
             for ( int i = 0; i < this.nrpSolutions.length; ++i ) {
                 if ( i < size ) {
                     newSolutionMemory[ i ] = this.nrpSolutions[ i ];
+                } else if ( this.nrpSolutions[ i ] != null ) {
+                    this.nrpSolutions[ i ].release();
                 }
             }
         }
@@ -0,0 +1,235 @@
+package nrp;
+
+import java.util.BitSet;
+
+/**
+ * The rejected customers of a solution with the highest profit per residual cost,
+ * best first. The local searches only scan this short list instead of every rejected
+ * customer. The list is filled from the rejected customers with the highest
+ * profit/cost ratio, walking the ranks of the solution and stopping once it is full,
+ * and a later fill goes on from where the last one stopped. After each move only the
+ * customers whose residual cost changed are rescored, the ones which need an
+ * enhancement the move accepted or released
+ */
+class NRPCandidateList
+{
+    private static final NRPCustomerOrdering ordering
+            = NRPCustomerOrdering.PROFIT_COST_RATIO_ASCENDING;
+
+    private final int capacity;
+    private final int[] customers;
+    private final double[] scores;
+    private int size = 0;
+
+    /*
+     * The rank the next fill starts from, walking down
+     */
+    private int nextRank = Integer.MAX_VALUE;
+
+    /*
+     * The customers of the next move, the requirements they touch and which of those
+     * were accepted before the move
+     */
+    private final int[] movedCustomers;
+    private int numberOfMovedCustomers = 0;
+    private final BitSet movedEnhancements = new BitSet();
+    private final BitSet acceptedMovedEnhancements = new BitSet();
+    private final BitSet rescoredCustomers = new BitSet();
+
+    /**
+     * @param capacity
+     *            the number of candidates kept, and the number of customers a move
+     *            may add besides the one it drops
+     */
+    protected NRPCandidateList( int capacity )
+    {
+        this.capacity = capacity;
+        this.customers = new int[ capacity ];
+        this.scores = new double[ capacity ];
+        this.movedCustomers = new int[ capacity + 1 ];
+    }
+
+    /**
+     * @return the number of candidates
+     */
+    protected int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * @param index
+     * @return the candidate at the index, the best candidate is at index 0
+     */
+    protected int getCustomer( int index )
+    {
+        return this.customers[ index ];
+    }
+
+    /**
+     * Fill the list up once fewer than half of the candidates are left. The walk goes
+     * on down the ranks from where the last fill stopped, a customer it passed is
+     * only considered again when its residual cost changes
+     *
+     * @param nrpSolution
+     * @param budget
+     *            the largest marginal cost a new candidate may have
+     */
+    protected void refill( NRPSolution nrpSolution, double budget )
+    {
+        if ( this.size * 2 >= this.capacity ) {
+            return;
+        }
+
+        int[] customerOrder = nrpSolution.getNrpInstance().getCustomerOrder( ordering );
+        int rank = nrpSolution.getPreviousRejectedRank( ordering, this.nextRank );
+        for ( ; rank >= 0 && this.size < this.capacity;
+                rank = nrpSolution.getPreviousRejectedRank( ordering, rank - 1 ) ) {
+            int customerIndex = customerOrder[ rank ];
+            if ( nrpSolution.getMarginalCost( customerIndex, budget ) <= budget ) {
+                this.remove( customerIndex );
+                this.add( nrpSolution, customerIndex );
+            }
+        }
+
+        this.nextRank = rank < 0 ? -1 : rank;
+    }
+
+    /**
+     * Called before a move for every customer it adds or drops, the requirements of
+     * the customer are remembered with whether they are accepted
+     *
+     * @param nrpSolution
+     * @param customerIndex
+     */
+    protected void markMovedCustomer( NRPSolution nrpSolution, int customerIndex )
+    {
+        int[] requirementOffsets = nrpSolution.getNrpInstance().getRequirementOffsets();
+        int[] requirementIndices = nrpSolution.getNrpInstance().getRequirementIndices();
+
+        this.movedCustomers[ this.numberOfMovedCustomers++ ] = customerIndex;
+        for ( int i = requirementOffsets[ customerIndex ];
+                i < requirementOffsets[ customerIndex + 1 ]; i++ ) {
+            int enhancementIndex = requirementIndices[ i ];
+
+            if ( !this.movedEnhancements.get( enhancementIndex ) ) {
+                this.movedEnhancements.set( enhancementIndex );
+                this.acceptedMovedEnhancements.set( enhancementIndex,
+                        nrpSolution.isAcceptedEnhancement( enhancementIndex ) );
+            }
+        }
+    }
+
+    /**
+     * Called after the move, the accepted customers leave the list and every
+     * rejected customer which needs an enhancement whose acceptance changed is
+     * rescored
+     *
+     * @param nrpSolution
+     */
+    protected void update( NRPSolution nrpSolution )
+    {
+        NRPInstance nrpInstance = nrpSolution.getNrpInstance();
+        int[] enhancementCustomerOffsets = nrpInstance.getEnhancementCustomerOffsets();
+        int[] enhancementCustomerIndices = nrpInstance.getEnhancementCustomerIndices();
+
+        for ( int i = 0; i < this.numberOfMovedCustomers; i++ ) {
+            this.rescore( nrpSolution, this.movedCustomers[ i ] );
+        }
+
+        for ( int enhancementIndex = this.movedEnhancements.nextSetBit( 0 );
+                enhancementIndex >= 0;
+                enhancementIndex = this.movedEnhancements.nextSetBit( enhancementIndex + 1 ) ) {
+            boolean wasAccepted = this.acceptedMovedEnhancements.get( enhancementIndex );
+            if ( nrpSolution.isAcceptedEnhancement( enhancementIndex ) == wasAccepted ) {
+                continue;
+            }
+
+            for ( int i = enhancementCustomerOffsets[ enhancementIndex ];
+                    i < enhancementCustomerOffsets[ enhancementIndex + 1 ]; i++ ) {
+                this.rescore( nrpSolution, enhancementCustomerIndices[ i ] );
+            }
+        }
+
+        for ( int customerIndex = this.rescoredCustomers.nextSetBit( 0 ); customerIndex >= 0;
+                customerIndex = this.rescoredCustomers.nextSetBit( customerIndex + 1 ) ) {
+            this.rescoredCustomers.clear( customerIndex );
+        }
+        for ( int enhancementIndex = this.movedEnhancements.nextSetBit( 0 );
+                enhancementIndex >= 0;
+                enhancementIndex = this.movedEnhancements.nextSetBit( enhancementIndex + 1 ) ) {
+            this.movedEnhancements.clear( enhancementIndex );
+            this.acceptedMovedEnhancements.clear( enhancementIndex );
+        }
+        this.numberOfMovedCustomers = 0;
+    }
+
+    /**
+     * Take the customer out of the list and score it again if it has not been
+     * accepted, once per update
+     *
+     * @param nrpSolution
+     * @param customerIndex
+     */
+    private void rescore( NRPSolution nrpSolution, int customerIndex )
+    {
+        if ( this.rescoredCustomers.get( customerIndex ) ) {
+            return;
+        }
+        this.rescoredCustomers.set( customerIndex );
+
+        this.remove( customerIndex );
+        if ( !nrpSolution.isAcceptedCustomer( customerIndex ) ) {
+            this.add( nrpSolution, customerIndex );
+        }
+    }
+
+    /**
+     * Score a customer which has not been accepted and insert it, the worst
+     * candidate is dropped when the list is full
+     *
+     * @param nrpSolution
+     * @param customerIndex
+     */
+    private void add( NRPSolution nrpSolution, int customerIndex )
+    {
+        double profit = nrpSolution.getNrpInstance().getCustomerProfits()[ customerIndex ];
+        double marginalCost = nrpSolution.getMarginalCost( customerIndex, Double.MAX_VALUE );
+        double score = marginalCost > 0.0 ? profit / marginalCost : Double.MAX_VALUE;
+
+        if ( this.size == this.capacity ) {
+            if ( score <= this.scores[ this.size - 1 ] ) {
+                return;
+            }
+            this.size--;
+        }
+
+        int index = this.size;
+        while ( index > 0 && this.scores[ index - 1 ] < score ) {
+            this.customers[ index ] = this.customers[ index - 1 ];
+            this.scores[ index ] = this.scores[ index - 1 ];
+            index--;
+        }
+
+        this.customers[ index ] = customerIndex;
+        this.scores[ index ] = score;
+        this.size++;
+    }
+
+    /**
+     * Remove a candidate if it is in the list
+     *
+     * @param customerIndex
+     */
+    private void remove( int customerIndex )
+    {
+        for ( int i = 0; i < this.size; i++ ) {
+            if ( this.customers[ i ] == customerIndex ) {
+                System.arraycopy( this.customers, i + 1, this.customers, i, this.size - i - 1 );
+                System.arraycopy( this.scores, i + 1, this.scores, i, this.size - i - 1 );
+                this.size--;
+                return;
+            }
+        }
+    }
+}
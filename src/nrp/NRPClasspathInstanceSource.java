@@ -0,0 +1,83 @@
+package nrp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Instances from classpath resources, for instances packaged in a jar. The name of
+ * an instance is its resource name without the directories and the .txt extension
+ */
+public class NRPClasspathInstanceSource implements NRPInstanceSource
+{
+    private final ClassLoader classLoader;
+    private final List< String > resourceNames;
+
+    /**
+     * @param classLoader
+     * @param resourceNames
+     *            the names of the resources, as for ClassLoader.getResourceAsStream
+     */
+    public NRPClasspathInstanceSource( ClassLoader classLoader, String... resourceNames )
+    {
+        this.classLoader = classLoader;
+        this.resourceNames = Arrays.asList( resourceNames.clone() );
+    }
+
+    @Override
+    public int getNumberOfInstances()
+    {
+        return this.resourceNames.size();
+    }
+
+    @Override
+    public String getInstanceName( int instanceId )
+    {
+        String resourceName = this.getResourceName( instanceId );
+        String fileName = resourceName.substring( resourceName.lastIndexOf( '/' ) + 1 );
+
+        return fileName.endsWith( ".txt" ) ? fileName.substring( 0, fileName.length() - 4 )
+                : fileName;
+    }
+
+    /**
+     * Resources aren't files, they are read through openInstance and have no
+     * snapshot
+     */
+    @Override
+    public Path getInstancePath( int instanceId )
+    {
+        this.getResourceName( instanceId );
+
+        return null;
+    }
+
+    @Override
+    public InputStream openInstance( int instanceId ) throws IOException
+    {
+        String resourceName = this.getResourceName( instanceId );
+
+        InputStream inputStream = this.classLoader.getResourceAsStream( resourceName );
+        if ( inputStream == null ) {
+            throw new IOException( "resource not found: " + resourceName );
+        }
+
+        return inputStream;
+    }
+
+    /**
+     * @param instanceId
+     * @return the resource name of the instance
+     */
+    private String getResourceName( int instanceId )
+    {
+        if ( instanceId < 1 || instanceId > this.resourceNames.size() ) {
+            throw new IllegalArgumentException( "instance " + instanceId + " does not exist, "
+                    + this.resourceNames.size() + " instances" );
+        }
+
+        return this.resourceNames.get( instanceId - 1 );
+    }
+}
@@ -0,0 +1,524 @@
+package nrp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The load stage which computes the full requirements of the customers. The
+ * dependency graph of the enhancements is split into its strongly connected
+ * components, found in topological order, so the closure of a component is computed
+ * once from the closures of the components it depends on. A component of more than
+ * one enhancement, or an enhancement which depends on itself, is a dependency cycle:
+ * all of its enhancements need each other, they are kept together and reported by
+ * getDependencyCycles(). The closures are only kept up to a size, so deep graphs
+ * don't hold every closure in memory. The customers are then expanded on a fork-join
+ * pool with a walk over the dependencies which takes the kept closure of an
+ * enhancement at once instead of walking below it
+ */
+class NRPClosureStage
+{
+    private static final int customersPerTask = 1024;
+    private static final int maximumClosureSize = 1024;
+
+    private final int numberOfEnhancements;
+    private final int[] dependencyOffsets;
+    private final int[] dependencyIndices;
+
+    /*
+     * The kept closure of every enhancement in CSR form, a closure always holds the
+     * enhancement itself so the row of an enhancement whose closure isn't kept is
+     * the only empty one
+     */
+    private final int[] closureOffsets;
+    private final int[] closureIndices;
+
+    private final List< int[] > dependencyCycles = new ArrayList<>();
+
+    /*
+     * The scratch arrays of the expanding tasks, reused so there is only one set per
+     * worker thread at a time
+     */
+    private final ConcurrentLinkedQueue< ExpandScratch > expandScratches
+            = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The markers and buffers a task needs to expand its customers
+     */
+    private static class ExpandScratch
+    {
+        private final int[] closureMarkers;
+        private final int[] closureBuffer;
+        private final int[] walkStack;
+
+        private ExpandScratch( int numberOfEnhancements )
+        {
+            this.closureMarkers = new int[ numberOfEnhancements ];
+            this.closureBuffer = new int[ numberOfEnhancements ];
+            this.walkStack = new int[ numberOfEnhancements ];
+        }
+    }
+
+    /**
+     * The components found so far and the closures of those which are kept, only
+     * needed while the components are found
+     */
+    private static class Components
+    {
+        private final int[] enhancementComponents;
+        private final int[] componentOffsets;
+        private final int[] componentIndices;
+        private final int[] closureOffsets;
+        private final boolean[] isClosureKept;
+        private final NRPIntPages closureRows = new NRPIntPages();
+        private final long closureBudget;
+
+        /*
+         * The size the closures of the kept components take once every enhancement
+         * of a component has its own row
+         */
+        private long keptClosureSize = 0;
+        private int numberOfComponents = 0;
+
+        private Components( int numberOfEnhancements, long closureBudget )
+        {
+            this.enhancementComponents = new int[ numberOfEnhancements ];
+            this.componentOffsets = new int[ numberOfEnhancements + 1 ];
+            this.componentIndices = new int[ numberOfEnhancements ];
+            this.closureOffsets = new int[ numberOfEnhancements + 1 ];
+            this.isClosureKept = new boolean[ numberOfEnhancements ];
+            this.closureBudget = closureBudget;
+        }
+    }
+
+    /**
+     * Find the components of the dependency graph and keep their closures
+     *
+     * @param numberOfEnhancements
+     * @param dependencyOffsets
+     * @param dependencyIndices
+     *            the direct dependencies of every enhancement
+     */
+    protected NRPClosureStage( int numberOfEnhancements, int[] dependencyOffsets,
+            int[] dependencyIndices )
+    {
+        this.numberOfEnhancements = numberOfEnhancements;
+        this.dependencyOffsets = dependencyOffsets;
+        this.dependencyIndices = dependencyIndices;
+
+        /*
+         * The kept closures may take a few times the size of the graph itself, and
+         * 16 MB more for the small graphs
+         */
+        Components components = new Components( numberOfEnhancements, Math.min(
+                Integer.MAX_VALUE - 8,
+                8L * ( numberOfEnhancements + dependencyIndices.length ) + ( 1 << 22 ) ) );
+        this.findComponents( components );
+
+        /*
+         * Give every enhancement the row of its component
+         */
+        this.closureOffsets = new int[ numberOfEnhancements + 1 ];
+        this.closureIndices = new int[ (int) components.keptClosureSize ];
+        int closureSize = 0;
+        for ( int i = 0; i < numberOfEnhancements; i++ ) {
+            int component = components.enhancementComponents[ i ];
+
+            if ( components.isClosureKept[ component ] ) {
+                for ( int j = components.closureOffsets[ component ];
+                        j < components.closureOffsets[ component + 1 ]; j++ ) {
+                    this.closureIndices[ closureSize++ ] = components.closureRows.get( j );
+                }
+            }
+            this.closureOffsets[ i + 1 ] = closureSize;
+        }
+    }
+
+    /**
+     * @return the enhancement indices of every dependency cycle, sorted
+     */
+    protected List< int[] > getDependencyCycles()
+    {
+        return dependencyCycles;
+    }
+
+    /**
+     * Iterative Tarjan walk over the dependencies, a component is complete only once
+     * every component it depends on is, so its closure is computed right away
+     *
+     * @param components
+     */
+    private void findComponents( Components components )
+    {
+        int[] visitIndex = new int[ this.numberOfEnhancements ];
+        int[] lowLink = new int[ this.numberOfEnhancements ];
+        int[] nextDependency = new int[ this.numberOfEnhancements ];
+        int[] componentStack = new int[ this.numberOfEnhancements ];
+        int[] walkStack = new int[ this.numberOfEnhancements ];
+        boolean[] isOnComponentStack = new boolean[ this.numberOfEnhancements ];
+        Arrays.fill( visitIndex, -1 );
+
+        int[] closureMarkers = new int[ this.numberOfEnhancements ];
+        int[] closureBuffer = new int[ this.numberOfEnhancements ];
+
+        int visitCounter = 0;
+        int componentStackSize = 0;
+        for ( int root = 0; root < this.numberOfEnhancements; root++ ) {
+            if ( visitIndex[ root ] >= 0 ) {
+                continue;
+            }
+
+            int walkStackSize = 0;
+            walkStack[ walkStackSize++ ] = root;
+            while ( walkStackSize > 0 ) {
+                int enhancementIndex = walkStack[ walkStackSize - 1 ];
+
+                if ( visitIndex[ enhancementIndex ] < 0 ) {
+                    visitIndex[ enhancementIndex ] = visitCounter;
+                    lowLink[ enhancementIndex ] = visitCounter++;
+                    nextDependency[ enhancementIndex ] = this.dependencyOffsets[ enhancementIndex ];
+                    componentStack[ componentStackSize++ ] = enhancementIndex;
+                    isOnComponentStack[ enhancementIndex ] = true;
+                }
+
+                if ( nextDependency[ enhancementIndex ]
+                        < this.dependencyOffsets[ enhancementIndex + 1 ] ) {
+                    int dependencyIndex
+                            = this.dependencyIndices[ nextDependency[ enhancementIndex ]++ ];
+
+                    if ( visitIndex[ dependencyIndex ] < 0 ) {
+                        walkStack[ walkStackSize++ ] = dependencyIndex;
+                    } else if ( isOnComponentStack[ dependencyIndex ] ) {
+                        lowLink[ enhancementIndex ] = Math.min( lowLink[ enhancementIndex ],
+                                visitIndex[ dependencyIndex ] );
+                    }
+                    continue;
+                }
+
+                /*
+                 * Every dependency is visited, pop the enhancement and its component if
+                 * it is the root of one
+                 */
+                walkStackSize--;
+                if ( walkStackSize > 0 ) {
+                    int parentIndex = walkStack[ walkStackSize - 1 ];
+                    lowLink[ parentIndex ]
+                            = Math.min( lowLink[ parentIndex ], lowLink[ enhancementIndex ] );
+                }
+
+                if ( lowLink[ enhancementIndex ] == visitIndex[ enhancementIndex ] ) {
+                    int component = components.numberOfComponents++;
+                    int componentStart = components.componentOffsets[ component ];
+                    int componentEnd = componentStart;
+                    do {
+                        int memberIndex = componentStack[ --componentStackSize ];
+                        isOnComponentStack[ memberIndex ] = false;
+                        components.enhancementComponents[ memberIndex ] = component;
+                        components.componentIndices[ componentEnd++ ] = memberIndex;
+                    } while ( components.componentIndices[ componentEnd - 1 ]
+                            != enhancementIndex );
+
+                    Arrays.sort( components.componentIndices, componentStart, componentEnd );
+                    components.componentOffsets[ component + 1 ] = componentEnd;
+                    this.addComponentClosure( components, component, closureMarkers,
+                            closureBuffer );
+                }
+            }
+        }
+    }
+
+    /**
+     * The closure of a component is its enhancements and the closures of the
+     * components they depend on, which are all complete already. It is kept when
+     * every one of those closures is kept and it fits in the limits
+     *
+     * @param components
+     * @param component
+     * @param closureMarkers
+     * @param closureBuffer
+     */
+    private void addComponentClosure( Components components, int component,
+            int[] closureMarkers, int[] closureBuffer )
+    {
+        int componentStart = components.componentOffsets[ component ];
+        int componentEnd = components.componentOffsets[ component + 1 ];
+        int marker = component + 1;
+        int closureSize = 0;
+        boolean isCycle = componentEnd - componentStart > 1;
+        boolean isKept = true;
+
+        for ( int i = componentStart; i < componentEnd; i++ ) {
+            closureMarkers[ components.componentIndices[ i ] ] = marker;
+            closureBuffer[ closureSize++ ] = components.componentIndices[ i ];
+        }
+
+        for ( int i = componentStart; i < componentEnd; i++ ) {
+            int enhancementIndex = components.componentIndices[ i ];
+
+            for ( int j = this.dependencyOffsets[ enhancementIndex ];
+                    j < this.dependencyOffsets[ enhancementIndex + 1 ]; j++ ) {
+                int dependencyComponent
+                        = components.enhancementComponents[ this.dependencyIndices[ j ] ];
+
+                if ( dependencyComponent == component ) {
+                    isCycle = true;
+                    continue;
+                }
+                if ( !isKept || !components.isClosureKept[ dependencyComponent ] ) {
+                    isKept = false;
+                    continue;
+                }
+
+                for ( int k = components.closureOffsets[ dependencyComponent ];
+                        k < components.closureOffsets[ dependencyComponent + 1 ]
+                                && closureSize <= maximumClosureSize; k++ ) {
+                    int closureIndex = components.closureRows.get( k );
+
+                    if ( closureMarkers[ closureIndex ] != marker ) {
+                        closureMarkers[ closureIndex ] = marker;
+                        closureBuffer[ closureSize++ ] = closureIndex;
+                    }
+                }
+                isKept = closureSize <= maximumClosureSize;
+            }
+        }
+
+        if ( isCycle ) {
+            this.dependencyCycles.add( Arrays.copyOfRange( components.componentIndices,
+                    componentStart, componentEnd ) );
+        }
+
+        long keptClosureSize = components.keptClosureSize
+                + (long) closureSize * ( componentEnd - componentStart );
+        if ( isKept && keptClosureSize <= components.closureBudget ) {
+            Arrays.sort( closureBuffer, 0, closureSize );
+            components.closureRows.addAll( closureBuffer, closureSize );
+            components.isClosureKept[ component ] = true;
+            components.keptClosureSize = keptClosureSize;
+        }
+        components.closureOffsets[ component + 1 ] = (int) components.closureRows.size();
+    }
+
+    /**
+     * Compute the full requirements of every customer, on the common fork-join pool
+     * when there are enough customers
+     *
+     * @param requestOffsets
+     * @param requestIndices
+     *            the requested enhancements of every customer
+     * @param requirementOffsets
+     *            filled with the offsets of the requirement rows, one more than the
+     *            number of customers
+     * @return the requirement rows, each sorted by enhancement index
+     */
+    protected int[] expandCustomers( int[] requestOffsets, int[] requestIndices,
+            int[] requirementOffsets )
+    {
+        int numberOfCustomers = requestOffsets.length - 1;
+        int numberOfTasks = ( numberOfCustomers + customersPerTask - 1 ) / customersPerTask;
+        int[][] taskRows = new int[ numberOfTasks ][];
+
+        ExpandTask expandTask = new ExpandTask( requestOffsets, requestIndices,
+                requirementOffsets, taskRows, 0, numberOfTasks );
+        if ( numberOfTasks > 1 ) {
+            ForkJoinPool.commonPool().invoke( expandTask );
+        } else {
+            expandTask.compute();
+        }
+
+        /*
+         * The tasks wrote the size of every row, turn them into offsets and join the
+         * rows of the tasks in order
+         */
+        long numberOfRequirements = 0;
+        for ( int i = 0; i < numberOfCustomers; i++ ) {
+            numberOfRequirements += requirementOffsets[ i + 1 ];
+            if ( numberOfRequirements > Integer.MAX_VALUE - 8 ) {
+                throw new IllegalStateException(
+                        "the requirements of the customers don't fit in an array" );
+            }
+            requirementOffsets[ i + 1 ] = (int) numberOfRequirements;
+        }
+
+        int[] requirementIndices = new int[ (int) numberOfRequirements ];
+        int position = 0;
+        for ( int task = 0; task < numberOfTasks; task++ ) {
+            System.arraycopy( taskRows[ task ], 0, requirementIndices, position,
+                    taskRows[ task ].length );
+            position += taskRows[ task ].length;
+            taskRows[ task ] = null;
+        }
+
+        return requirementIndices;
+    }
+
+    /**
+     * Expands the customers of the tasks [ fromTask, toTask ), a task is
+     * customersPerTask customers
+     */
+    private class ExpandTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] requestOffsets;
+        private final int[] requestIndices;
+        private final int[] requirementSizes;
+        private final int[][] taskRows;
+        private final int fromTask;
+        private final int toTask;
+
+        private ExpandTask( int[] requestOffsets, int[] requestIndices, int[] requirementSizes,
+                int[][] taskRows, int fromTask, int toTask )
+        {
+            this.requestOffsets = requestOffsets;
+            this.requestIndices = requestIndices;
+            this.requirementSizes = requirementSizes;
+            this.taskRows = taskRows;
+            this.fromTask = fromTask;
+            this.toTask = toTask;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if ( this.toTask - this.fromTask > 1 ) {
+                int middleTask = ( this.fromTask + this.toTask ) >>> 1;
+                RecursiveAction.invokeAll(
+                        new ExpandTask( this.requestOffsets, this.requestIndices,
+                                this.requirementSizes, this.taskRows, this.fromTask, middleTask ),
+                        new ExpandTask( this.requestOffsets, this.requestIndices,
+                                this.requirementSizes, this.taskRows, middleTask, this.toTask ) );
+                return;
+            }
+
+            for ( int task = this.fromTask; task < this.toTask; task++ ) {
+                this.taskRows[ task ] = this.expandTask( task );
+            }
+        }
+
+        /**
+         * @param task
+         * @return the requirement rows of the customers of the task, their sizes are
+         *         written to requirementSizes
+         */
+        private int[] expandTask( int task )
+        {
+            int numberOfCustomers = this.requestOffsets.length - 1;
+            int fromCustomer = task * customersPerTask;
+            int toCustomer = Math.min( fromCustomer + customersPerTask, numberOfCustomers );
+
+            /*
+             * The markers of a customer are its id, so they never have to be cleared
+             * between the tasks sharing the scratch
+             */
+            ExpandScratch scratch = NRPClosureStage.this.expandScratches.poll();
+            if ( scratch == null ) {
+                scratch = new ExpandScratch( NRPClosureStage.this.numberOfEnhancements );
+            }
+
+            NRPIntPages rows = new NRPIntPages();
+            for ( int i = fromCustomer; i < toCustomer; i++ ) {
+                int closureSize = NRPClosureStage.this.getCustomerClosure( this.requestIndices,
+                        this.requestOffsets[ i ], this.requestOffsets[ i + 1 ], i + 1,
+                        scratch.closureMarkers, scratch.closureBuffer, scratch.walkStack );
+
+                rows.addAll( scratch.closureBuffer, closureSize );
+                this.requirementSizes[ i + 1 ] = closureSize;
+            }
+            NRPClosureStage.this.expandScratches.add( scratch );
+
+            return rows.toArray();
+        }
+    }
+
+    /**
+     * Walk down the dependencies from the requested enhancements, an enhancement
+     * whose closure is kept adds its closure and the walk stops there. Every
+     * enhancement in the closure has its own closure in it, so a marked enhancement
+     * is never walked again
+     *
+     * @param requestIndices
+     * @param from
+     * @param to
+     *            the requested enhancements are requestIndices[ from, to )
+     * @param marker
+     *            different for every customer expanded with the same markers
+     * @param closureMarkers
+     * @param closureBuffer
+     *            holds the closure sorted by enhancement index afterwards
+     * @param walkStack
+     * @return the size of the closure
+     */
+    private int getCustomerClosure( int[] requestIndices, int from, int to, int marker,
+            int[] closureMarkers, int[] closureBuffer, int[] walkStack )
+    {
+        int closureSize = 0;
+        int walkStackSize = 0;
+        for ( int i = from; i < to; i++ ) {
+            int enhancementIndex = requestIndices[ i ];
+
+            if ( closureMarkers[ enhancementIndex ] != marker ) {
+                closureSize = this.addToClosure( enhancementIndex, marker, closureMarkers,
+                        closureBuffer, closureSize );
+                if ( this.closureOffsets[ enhancementIndex ]
+                        == this.closureOffsets[ enhancementIndex + 1 ] ) {
+                    walkStack[ walkStackSize++ ] = enhancementIndex;
+                }
+            }
+        }
+
+        while ( walkStackSize > 0 ) {
+            int enhancementIndex = walkStack[ --walkStackSize ];
+
+            for ( int i = this.dependencyOffsets[ enhancementIndex ];
+                    i < this.dependencyOffsets[ enhancementIndex + 1 ]; i++ ) {
+                int dependencyIndex = this.dependencyIndices[ i ];
+
+                if ( closureMarkers[ dependencyIndex ] != marker ) {
+                    closureSize = this.addToClosure( dependencyIndex, marker, closureMarkers,
+                            closureBuffer, closureSize );
+                    if ( this.closureOffsets[ dependencyIndex ]
+                            == this.closureOffsets[ dependencyIndex + 1 ] ) {
+                        walkStack[ walkStackSize++ ] = dependencyIndex;
+                    }
+                }
+            }
+        }
+
+        Arrays.sort( closureBuffer, 0, closureSize );
+
+        return closureSize;
+    }
+
+    /**
+     * Add the enhancement, and its whole closure when it is kept
+     *
+     * @param enhancementIndex
+     * @param marker
+     * @param closureMarkers
+     * @param closureBuffer
+     * @param closureSize
+     * @return the size of the closure afterwards
+     */
+    private int addToClosure( int enhancementIndex, int marker, int[] closureMarkers,
+            int[] closureBuffer, int closureSize )
+    {
+        closureMarkers[ enhancementIndex ] = marker;
+        closureBuffer[ closureSize++ ] = enhancementIndex;
+
+        for ( int i = this.closureOffsets[ enhancementIndex ];
+                i < this.closureOffsets[ enhancementIndex + 1 ]; i++ ) {
+            int closureIndex = this.closureIndices[ i ];
+
+            if ( closureMarkers[ closureIndex ] != marker ) {
+                closureMarkers[ closureIndex ] = marker;
+                closureBuffer[ closureSize++ ] = closureIndex;
+            }
+        }
+
+        return closureSize;
+    }
+}
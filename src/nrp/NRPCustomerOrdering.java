@@ -0,0 +1,23 @@
+package nrp;
+
+/**
+ * The static orderings of the customers used by the sorted heuristics of
+ * {@link NRP}, ties are ordered by customer index
+ */
+enum NRPCustomerOrdering
+{
+    /**
+     * From the highest to the lowest cost of the full requirements
+     */
+    COST_DESCENDING,
+
+    /**
+     * From the lowest to the highest profit
+     */
+    PROFIT_ASCENDING,
+
+    /**
+     * From the lowest to the highest profit/cost ratio
+     */
+    PROFIT_COST_RATIO_ASCENDING
+}
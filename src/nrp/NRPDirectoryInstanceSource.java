@@ -0,0 +1,71 @@
+package nrp;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Instances from every .txt file of a directory, sorted by file name. The directory
+ * is scanned on first use, a directory which can't be read fails every use until it
+ * can be scanned. The bundled directory gives the same ids as the original
+ * fixed list of 15 instances, nrp1-0.3 is 1 and nrp5-0.7 is 15
+ */
+public class NRPDirectoryInstanceSource extends NRPPathInstanceSource
+{
+    private static final Path bundledInstanceDirectory = Paths.get( "src", "nrp", "instance" );
+
+    private final Path instanceDirectory;
+    private List< Path > scannedInstancePaths;
+
+    /**
+     * @param instanceDirectory
+     */
+    public NRPDirectoryInstanceSource( Path instanceDirectory )
+    {
+        super( Collections.< Path > emptyList() );
+        this.instanceDirectory = instanceDirectory;
+    }
+
+    /**
+     * @return the source of the instances bundled in src/nrp/instance/
+     */
+    public static NRPDirectoryInstanceSource getBundledInstances()
+    {
+        return new NRPDirectoryInstanceSource( bundledInstanceDirectory );
+    }
+
+    /**
+     * @throws UncheckedIOException
+     *             if the directory is missing or can't be read
+     */
+    @Override
+    protected synchronized List< Path > getInstancePaths()
+    {
+        if ( this.scannedInstancePaths == null ) {
+            List< Path > instancePaths = new ArrayList<>();
+
+            try ( DirectoryStream< Path > directoryStream
+                    = Files.newDirectoryStream( this.instanceDirectory, "*.txt" ) ) {
+                for ( Path instancePath : directoryStream ) {
+                    if ( Files.isRegularFile( instancePath ) ) {
+                        instancePaths.add( instancePath );
+                    }
+                }
+            } catch ( IOException e ) {
+                throw new UncheckedIOException(
+                        "instance directory " + this.instanceDirectory + " can't be read", e );
+            }
+
+            Collections.sort( instancePaths );
+            this.scannedInstancePaths = instancePaths;
+        }
+
+        return scannedInstancePaths;
+    }
+}
@@ -0,0 +1,103 @@
+package nrp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Instances of a list of {@link NRPInstanceGenerator}. Every instance is generated
+ * into a file of the directory the first time it is used, so it is only generated
+ * once and can get a snapshot like the other instance files
+ */
+public class NRPGeneratedInstanceSource implements NRPInstanceSource
+{
+    private final Path instanceDirectory;
+    private final List< NRPInstanceGenerator > instanceGenerators;
+
+    /**
+     * @param instanceDirectory
+     *            where the instances are generated
+     * @param instanceGenerators
+     */
+    public NRPGeneratedInstanceSource( Path instanceDirectory,
+            NRPInstanceGenerator... instanceGenerators )
+    {
+        this.instanceDirectory = instanceDirectory;
+        this.instanceGenerators = new ArrayList<>( Arrays.asList( instanceGenerators ) );
+    }
+
+    @Override
+    public int getNumberOfInstances()
+    {
+        return this.instanceGenerators.size();
+    }
+
+    @Override
+    public String getInstanceName( int instanceId )
+    {
+        return this.getInstanceGenerator( instanceId ).getInstanceName();
+    }
+
+    /**
+     * Generate the instance file if it doesn't exist yet
+     *
+     * @throws UncheckedIOException
+     *             if the instance file can't be written
+     */
+    @Override
+    public synchronized Path getInstancePath( int instanceId )
+    {
+        NRPInstanceGenerator instanceGenerator = this.getInstanceGenerator( instanceId );
+        Path instancePath
+                = this.instanceDirectory.resolve( instanceGenerator.getInstanceName() + ".txt" );
+
+        if ( !Files.isRegularFile( instancePath ) ) {
+            try {
+                Files.createDirectories( this.instanceDirectory );
+
+                /*
+                 * Generate into a temporary file, so a partly written instance is never
+                 * used
+                 */
+                Path temporaryFile = Files.createTempFile( this.instanceDirectory,
+                        instanceGenerator.getInstanceName(), ".tmp" );
+                try {
+                    instanceGenerator.write( temporaryFile );
+                    Files.move( temporaryFile, instancePath, StandardCopyOption.REPLACE_EXISTING );
+                } finally {
+                    Files.deleteIfExists( temporaryFile );
+                }
+            } catch ( IOException e ) {
+                throw new UncheckedIOException( e );
+            }
+        }
+
+        return instancePath;
+    }
+
+    @Override
+    public InputStream openInstance( int instanceId ) throws IOException
+    {
+        return Files.newInputStream( this.getInstancePath( instanceId ) );
+    }
+
+    /**
+     * @param instanceId
+     * @return the generator of the instance
+     */
+    private NRPInstanceGenerator getInstanceGenerator( int instanceId )
+    {
+        if ( instanceId < 1 || instanceId > this.instanceGenerators.size() ) {
+            throw new IllegalArgumentException( "instance " + instanceId + " does not exist, "
+                    + this.instanceGenerators.size() + " instances" );
+        }
+
+        return this.instanceGenerators.get( instanceId - 1 );
+    }
+}
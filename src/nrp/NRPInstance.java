@@ -1,288 +1,1011 @@
 package nrp;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.file.FileSystems;
-import java.nio.file.Files;
+import java.io.InputStream;
+import java.nio.channels.Channels;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Immutable struct-of-arrays view of an instance. Customers and enhancements are
+ * identified by their index (id - 1). The requirements of the customers and the
+ * dependencies of the enhancements are stored in CSR form: the entries of row i
+ * are at [ offsets[ i ], offsets[ i + 1 ] ) of the indices array. None of the
+ * arrays is modified after loading, so one instance can safely be shared by
+ * several NRP objects and their solutions
+ */
 class NRPInstance
 {
-    private List< Enhancement > enhancementsList = new ArrayList<>();
-    private List< Customer > customersList = new ArrayList<>();
+    private final int instanceId;
+    private final int numberOfEnhancements;
+    private final int numberOfCustomers;
 
-    private int numberOfEnhancements;
-    private int numberOfCustomers;
+    private final double[] enhancementCosts;
+    private final int[] dependencyOffsets;
+    private final int[] dependencyIndices;
 
-    private int instanceId;
-    private double totalCost;
-    private double costLimit;
-    private double costLimitRatio;
-    private String filePath = "src/nrp/instance/";
-    private String[] fileNames = { "nrp1-0.3", "nrp1-0.5", "nrp1-0.7", "nrp2-0.3", "nrp2-0.5",
-            "nrp2-0.7", "nrp3-0.3", "nrp3-0.5", "nrp3-0.7", "nrp4-0.3", "nrp4-0.5", "nrp4-0.7",
-            "nrp5-0.3", "nrp5-0.5", "nrp5-0.7" };
+    /*
+     * The enhancement indices of every dependency cycle, sorted
+     */
+    private final List< int[] > dependencyCycles;
+
+    private final double[] customerProfits;
+
+    /*
+     * The full transitive closure of the requirements of every customer, sorted by
+     * enhancement index, and its cost
+     */
+    private final int[] requirementOffsets;
+    private final int[] requirementIndices;
+    private final double[] customerCosts;
+
+    /*
+     * The inverse of the requirement rows, the customers which need each
+     * enhancement
+     */
+    private final int[] enhancementCustomerOffsets;
+    private final int[] enhancementCustomerIndices;
+
+    /*
+     * The customers in every NRPCustomerOrdering, and the rank of every customer in
+     * it, indexed by the ordinal of the ordering
+     */
+    private final int[][] customerOrders;
+    private final int[][] customerRanks;
 
-    protected NRPInstance( int instanceId )
+    private final double totalCost;
+    private final double costLimit;
+    private final double costLimitRatio;
+
+    /**
+     * Read the instance from the source, {@link NRPInstanceRegistry} keeps the loaded
+     * instances, this always reads them again. Instance files are loaded from their
+     * snapshot when it is up to date, the other instances are parsed from their stream
+     *
+     * @param instanceSource
+     * @param instanceId
+     * @return the instance
+     * @throws IOException
+     *             if the instance can't be read or is malformed
+     */
+    protected static NRPInstance read( NRPInstanceSource instanceSource, int instanceId )
+            throws IOException
+    {
+        Path pathToInstanceFile = instanceSource.getInstancePath( instanceId );
+        if ( pathToInstanceFile != null ) {
+            return NRPInstanceCache.load( instanceId, pathToInstanceFile );
+        }
+
+        try ( InputStream inputStream = instanceSource.openInstance( instanceId ) ) {
+            return NRPInstance.parse( instanceId,
+                    new NRPInstanceParser( instanceSource.getInstanceName( instanceId ),
+                            Channels.newChannel( inputStream ) ) );
+        }
+    }
+
+    /**
+     * Read an instance file and compute the full requirements of every customer
+     *
+     * @param instanceId
+     * @param parser
+     *            the parser of the instance file
+     * @return the instance
+     * @throws IOException
+     *             if the file is malformed or truncated, or refers to an enhancement
+     *             which doesn't exist
+     */
+    protected static NRPInstance parse( int instanceId, NRPInstanceParser parser )
+            throws IOException
     {
         /*
-         * read the instance file
+         * Get cost limit ratio
          */
-        this.instanceId = instanceId;
-        initializeTheInstance( instanceId );
+        double costLimitRatio = parser.nextDouble();
+
+        /*
+         * Get enhancement costs array, read it per level, as the format of the file
+         */
+        int enhancementLevel = parser.nextCount( "levels" );
+        double[] enhancementCosts = new double[ 0 ];
+        for ( int level = 0; level < enhancementLevel; level++ ) {
+
+            int numberOfEnhancementsInLevel = parser.nextCount( "enhancements" );
+            int enhancementIndex = enhancementCosts.length;
+            enhancementCosts = Arrays.copyOf( enhancementCosts,
+                    enhancementIndex + numberOfEnhancementsInLevel );
+
+            for ( int i = 0; i < numberOfEnhancementsInLevel; i++ ) {
+                enhancementCosts[ enhancementIndex++ ] = parser.nextInt();
+            }
+        }
+        int numberOfEnhancements = enhancementCosts.length;
+
+        /*
+         * Read the dependency pairs, the first number is the dependency of the second
+         */
+        int numberOfDependencies = parser.nextCount( "dependencies" );
+        int[] dependentEnhancements = new int[ numberOfDependencies ];
+        int[] dependencyIndices = new int[ numberOfDependencies ];
+        for ( int i = 0; i < numberOfDependencies; i++ ) {
+            dependencyIndices[ i ] = parser.nextIndex( numberOfEnhancements, "enhancement" );
+            dependentEnhancements[ i ] = parser.nextIndex( numberOfEnhancements, "enhancement" );
+        }
+
+        /*
+         * Build the dependency rows
+         */
+        int[] dependencyOffsets = new int[ numberOfEnhancements + 1 ];
+        for ( int enhancementIndex : dependentEnhancements ) {
+            dependencyOffsets[ enhancementIndex + 1 ]++;
+        }
+        for ( int i = 0; i < numberOfEnhancements; i++ ) {
+            dependencyOffsets[ i + 1 ] += dependencyOffsets[ i ];
+        }
+
+        int[] dependencyRows = new int[ numberOfDependencies ];
+        int[] nextDependency = Arrays.copyOf( dependencyOffsets, numberOfEnhancements );
+        for ( int i = 0; i < numberOfDependencies; i++ ) {
+            dependencyRows[ nextDependency[ dependentEnhancements[ i ] ]++ ]
+                    = dependencyIndices[ i ];
+        }
+        dependencyIndices
+                = NRPInstance.sortAndRemoveDuplicates( dependencyOffsets, dependencyRows );
 
         /*
-         * At the end of initialization, count the total of enhancements and customers
+         * Read the customers, their profit and requested enhancements, only the
+         * requests are kept until the closure stage expands them
          */
-        this.numberOfEnhancements = this.enhancementsList.size();
-        this.numberOfCustomers = this.customersList.size();
-        this.setTotalCost();
-        this.setCostLimit();
+        int numberOfCustomers = parser.nextCount( "customers" );
+        double[] customerProfits = new double[ numberOfCustomers ];
+        int[] requestOffsets = new int[ numberOfCustomers + 1 ];
+        NRPIntPages requestRows = new NRPIntPages();
+        for ( int i = 0; i < numberOfCustomers; i++ ) {
+
+            customerProfits[ i ] = parser.nextInt();
+
+            int numberOfRequests = parser.nextCount( "requests" );
+            for ( int j = 0; j < numberOfRequests; j++ ) {
+                requestRows.add( parser.nextIndex( numberOfEnhancements, "enhancement" ) );
+            }
+
+            if ( requestRows.size() > Integer.MAX_VALUE - 8 ) {
+                throw new IOException( "the requests of the customers don't fit in an array" );
+            }
+            requestOffsets[ i + 1 ] = (int) requestRows.size();
+        }
+        int[] requestIndices = requestRows.toArray();
+
+        /*
+         * Compute the full requirements of every customer
+         */
+        NRPClosureStage closureStage
+                = new NRPClosureStage( numberOfEnhancements, dependencyOffsets, dependencyIndices );
+        int[] requirementOffsets = new int[ numberOfCustomers + 1 ];
+        int[] requirementIndices = closureStage.expandCustomers( requestOffsets,
+                requestIndices, requirementOffsets );
+
+        NRPInstance nrpInstance = new NRPInstance( instanceId, costLimitRatio,
+                enhancementCosts, dependencyOffsets, dependencyIndices,
+                closureStage.getDependencyCycles(), customerProfits, requirementOffsets,
+                requirementIndices );
+        nrpInstance.printDependencyCycles( parser.getSourceName() );
+
+        return nrpInstance;
+    }
+
+    /**
+     * Warn about every dependency cycle of the instance, whether it was parsed or
+     * loaded from a snapshot
+     *
+     * @param sourceName
+     *            the name of the instance file
+     */
+    protected void printDependencyCycles( String sourceName )
+    {
+        for ( int[] dependencyCycle : this.dependencyCycles ) {
+            System.err.println( "Dependency cycle in " + sourceName + ": "
+                    + NRPInstance.toIds( dependencyCycle ) );
+        }
     }
 
     /**
-     * Initialize the instance by reading the instance files
-     * 
+     * Build the instance from its flat arrays, everything else is derived from them.
+     * The arrays are kept, not copied
+     *
      * @param instanceId
+     * @param costLimitRatio
+     * @param enhancementCosts
+     * @param dependencyOffsets
+     * @param dependencyIndices
+     *            the sorted direct dependencies of every enhancement
+     * @param dependencyCycles
+     *            the sorted enhancement indices of every dependency cycle
+     * @param customerProfits
+     * @param requirementOffsets
+     * @param requirementIndices
+     *            the sorted full requirements of every customer
      */
-    private void initializeTheInstance( int instanceId )
+    protected NRPInstance( int instanceId, double costLimitRatio, double[] enhancementCosts,
+            int[] dependencyOffsets, int[] dependencyIndices, List< int[] > dependencyCycles,
+            double[] customerProfits, int[] requirementOffsets, int[] requirementIndices )
     {
-        int totalEnhancement = 0;
-        List< Integer > enhancementCosts = new ArrayList< Integer >();
+        this.instanceId = instanceId;
+        this.costLimitRatio = costLimitRatio;
+        this.numberOfEnhancements = enhancementCosts.length;
+        this.numberOfCustomers = customerProfits.length;
+        this.enhancementCosts = enhancementCosts;
+        this.dependencyOffsets = dependencyOffsets;
+        this.dependencyIndices = dependencyIndices;
+        this.dependencyCycles = dependencyCycles;
+        this.customerProfits = customerProfits;
+        this.requirementOffsets = requirementOffsets;
+        this.requirementIndices = requirementIndices;
+
+        /*
+         * The cost of the full requirements of every customer
+         */
+        this.customerCosts = new double[ this.numberOfCustomers ];
+        for ( int i = 0; i < this.numberOfCustomers; i++ ) {
+            this.customerCosts[ i ] = this.sumCustomerCost( i );
+        }
 
-        Path pathToInstanceFile = FileSystems.getDefault().getPath( ".",
-                filePath + fileNames[ instanceId - 1 ] + ".txt" );
-        try ( BufferedReader br = Files.newBufferedReader( pathToInstanceFile ) ) {
+        /*
+         * Build the inverse of the requirement rows
+         */
+        this.enhancementCustomerOffsets = new int[ this.numberOfEnhancements + 1 ];
+        this.enhancementCustomerIndices = NRPInstance.invertRows( this.requirementOffsets,
+                this.requirementIndices, this.enhancementCustomerOffsets );
 
-            /*
-             * Get cost limit ratio
-             */
-            Double costLimitRatio = Double.parseDouble( br.readLine() );
-            this.costLimitRatio = costLimitRatio;
+        /*
+         * Sort the customers once for every ordering
+         */
+        NRPCustomerOrdering[] orderings = NRPCustomerOrdering.values();
+        this.customerOrders = new int[ orderings.length ][];
+        this.customerRanks = new int[ orderings.length ][];
+        for ( NRPCustomerOrdering ordering : orderings ) {
+            int[] customerOrder = this.sortCustomers( ordering );
+            int[] customerRank = new int[ this.numberOfCustomers ];
+            for ( int rank = 0; rank < this.numberOfCustomers; rank++ ) {
+                customerRank[ customerOrder[ rank ] ] = rank;
+            }
+
+            this.customerOrders[ ordering.ordinal() ] = customerOrder;
+            this.customerRanks[ ordering.ordinal() ] = customerRank;
+        }
+
+        /*
+         * At the end of initialization, count the total cost and the cost limit
+         */
+        this.totalCost = NRPInstance.sum( this.enhancementCosts );
+        this.costLimit = this.totalCost * this.costLimitRatio;
+    }
+
+    /**
+     * @param delta
+     * @return a new instance with the changes of the delta, this instance is left as
+     *         it is
+     */
+    protected NRPInstance apply( NRPInstanceDelta delta )
+    {
+        return new NRPInstance( this, delta );
+    }
 
-            /*
-             * Get enhancement costs array, read it per level, as the format of the file,
-             * also count how many enhancements expected
-             */
-            int enhancementLevel = Integer.parseInt( br.readLine() );
-            for ( int level = 0; level < enhancementLevel; level++ ) {
+    /**
+     * Build the instance with the changes of the delta. The arrays the delta doesn't
+     * change are shared with the previous instance, only the requirements of the
+     * added customers are computed, only the cost of the customers which need a
+     * changed enhancement is summed again, and the orderings only sort the customers
+     * whose key changed into the previous order
+     *
+     * @param nrpInstance
+     *            the previous instance
+     * @param delta
+     */
+    private NRPInstance( NRPInstance nrpInstance, NRPInstanceDelta delta )
+    {
+        NRPInstance.checkDelta( nrpInstance, delta );
 
-                int numberOfEnhancements = Integer.parseInt( br.readLine() );
-                totalEnhancement += numberOfEnhancements;
+        this.instanceId = nrpInstance.instanceId;
+        this.numberOfEnhancements = nrpInstance.numberOfEnhancements;
+        this.dependencyOffsets = nrpInstance.dependencyOffsets;
+        this.dependencyIndices = nrpInstance.dependencyIndices;
+        this.dependencyCycles = nrpInstance.dependencyCycles;
+        this.costLimitRatio = delta.getCostLimitRatio() != null
+                ? delta.getCostLimitRatio()
+                : nrpInstance.costLimitRatio;
 
-                String[] enhancementCostsInString = br.readLine().split( "\\s+" );
-                for ( int i = 0; i < numberOfEnhancements; i++ ) {
-                    enhancementCosts.add( Integer.parseInt( enhancementCostsInString[ i ] ) );
+        /*
+         * Enhancement costs, only the ones which really change are kept
+         */
+        double[] enhancementCosts = nrpInstance.enhancementCosts;
+        List< Integer > changedEnhancements = new ArrayList<>();
+        for ( Map.Entry< Integer, Double > entry : delta.getEnhancementCosts().entrySet() ) {
+            if ( enhancementCosts[ entry.getKey() ] != entry.getValue() ) {
+                if ( enhancementCosts == nrpInstance.enhancementCosts ) {
+                    enhancementCosts = enhancementCosts.clone();
                 }
+                enhancementCosts[ entry.getKey() ] = entry.getValue();
+                changedEnhancements.add( entry.getKey() );
             }
+        }
+        this.enhancementCosts = enhancementCosts;
 
-            /*
-             * Build enhancements list
-             */
-            for ( int i = 0; i < totalEnhancement; i++ ) {
+        /*
+         * The previous index of every customer, -1 for the added customers
+         */
+        int[] customerMap = delta.getCustomerMap( nrpInstance.numberOfCustomers );
+        int numberOfAddedCustomers = delta.getAddedCustomerProfits().size();
+        this.numberOfCustomers = nrpInstance.numberOfCustomers
+                - delta.getRemovedCustomers().cardinality() + numberOfAddedCustomers;
 
-                int enhancementId = i + 1;
-                Enhancement enhancement
-                        = new Enhancement( enhancementId, enhancementCosts.get( i ) );
+        int[] previousCustomers = new int[ this.numberOfCustomers ];
+        Arrays.fill( previousCustomers, -1 );
+        for ( int i = 0; i < customerMap.length; i++ ) {
+            if ( customerMap[ i ] >= 0 ) {
+                previousCustomers[ customerMap[ i ] ] = i;
+            }
+        }
+
+        boolean[] isProfitChanged = new boolean[ this.numberOfCustomers ];
+        boolean[] isCostChanged = new boolean[ this.numberOfCustomers ];
+        for ( int i = this.numberOfCustomers - numberOfAddedCustomers;
+                i < this.numberOfCustomers; i++ ) {
+            isProfitChanged[ i ] = true;
+            isCostChanged[ i ] = true;
+        }
+
+        /*
+         * Customer profits
+         */
+        double[] customerProfits = nrpInstance.customerProfits;
+        if ( delta.changesCustomers() || !delta.getCustomerProfits().isEmpty() ) {
+            customerProfits = new double[ this.numberOfCustomers ];
+            for ( int i = 0; i < this.numberOfCustomers - numberOfAddedCustomers; i++ ) {
+                customerProfits[ i ] = nrpInstance.customerProfits[ previousCustomers[ i ] ];
+            }
+            for ( int i = 0; i < numberOfAddedCustomers; i++ ) {
+                customerProfits[ this.numberOfCustomers - numberOfAddedCustomers + i ]
+                        = delta.getAddedCustomerProfits().get( i );
+            }
 
-                this.enhancementsList.add( enhancement );
+            for ( Map.Entry< Integer, Double > entry : delta.getCustomerProfits().entrySet() ) {
+                int customerIndex = customerMap[ entry.getKey() ];
+                if ( customerIndex >= 0 && customerProfits[ customerIndex ] != entry.getValue() ) {
+                    customerProfits[ customerIndex ] = entry.getValue();
+                    isProfitChanged[ customerIndex ] = true;
+                }
             }
+        }
+        this.customerProfits = customerProfits;
 
-            /*
-             * Add dependency enhancement to the list
-             */
-            int numberOfDependencies = Integer.parseInt( br.readLine() );
-            for ( int i = 0; i < numberOfDependencies; i++ ) {
+        /*
+         * Requirements, the rows of the remaining customers are copied and only the
+         * added customers are expanded
+         */
+        if ( delta.changesCustomers() ) {
+            this.requirementOffsets = new int[ this.numberOfCustomers + 1 ];
+            this.requirementIndices = this.getRequirements( nrpInstance, previousCustomers,
+                    delta.getAddedCustomerRequests() );
+            this.enhancementCustomerOffsets = new int[ this.numberOfEnhancements + 1 ];
+            this.enhancementCustomerIndices = NRPInstance.invertRows( this.requirementOffsets,
+                    this.requirementIndices, this.enhancementCustomerOffsets );
+        } else {
+            this.requirementOffsets = nrpInstance.requirementOffsets;
+            this.requirementIndices = nrpInstance.requirementIndices;
+            this.enhancementCustomerOffsets = nrpInstance.enhancementCustomerOffsets;
+            this.enhancementCustomerIndices = nrpInstance.enhancementCustomerIndices;
+        }
 
-                String[] enhancementAndDependencyPair = br.readLine().split( "\\s+" );
-                int enhancementId = Integer.parseInt( enhancementAndDependencyPair[ 1 ] );
-                int dependencyId = Integer.parseInt( enhancementAndDependencyPair[ 0 ] );
+        /*
+         * Customer costs, summed again only for the customers which need a changed
+         * enhancement
+         */
+        for ( int enhancementIndex : changedEnhancements ) {
+            for ( int i = this.enhancementCustomerOffsets[ enhancementIndex ];
+                    i < this.enhancementCustomerOffsets[ enhancementIndex + 1 ]; i++ ) {
+                isCostChanged[ this.enhancementCustomerIndices[ i ] ] = true;
+            }
+        }
 
-                Enhancement enhancement = this.enhancementsList.get( enhancementId - 1 );
-                Enhancement dependency = this.enhancementsList.get( dependencyId - 1 );
-                enhancement.addDependencyEnhancement( dependency );
+        double[] customerCosts = nrpInstance.customerCosts;
+        if ( delta.changesCustomers() || !changedEnhancements.isEmpty() ) {
+            customerCosts = new double[ this.numberOfCustomers ];
+            for ( int i = 0; i < this.numberOfCustomers; i++ ) {
+                customerCosts[ i ] = isCostChanged[ i ]
+                        ? this.sumCustomerCost( i )
+                        : nrpInstance.customerCosts[ previousCustomers[ i ] ];
             }
+        }
+        this.customerCosts = customerCosts;
 
-            /*
-             * Build customer map
-             */
-            int numberOfCustomers = Integer.parseInt( br.readLine() );
-            for ( int i = 0; i < numberOfCustomers; i++ ) {
-
-                // Create initial information
-                String[] customerInformation = br.readLine().split( "\\s+" );
-                int profitOfCustomer = Integer.parseInt( customerInformation[ 0 ] );
-                int numberOfRequests = Integer.parseInt( customerInformation[ 1 ] );
-                List< Enhancement > enhancementsList = new ArrayList<>();
-                for ( int j = 0; j < numberOfRequests; j++ ) {
-
-                    int enhancementId = Integer.parseInt( customerInformation[ j + 2 ] );
-                    enhancementsList.add( this.enhancementsList.get( enhancementId - 1 ) );
-                }
+        /*
+         * Orderings, kept when no key of the ordering changes
+         */
+        NRPCustomerOrdering[] orderings = NRPCustomerOrdering.values();
+        this.customerOrders = new int[ orderings.length ][];
+        this.customerRanks = new int[ orderings.length ][];
+        for ( NRPCustomerOrdering ordering : orderings ) {
+            boolean[] isKeyChanged;
+            switch ( ordering ) {
+                case COST_DESCENDING:
+                    isKeyChanged = isCostChanged;
+                    break;
+                case PROFIT_ASCENDING:
+                    isKeyChanged = isProfitChanged;
+                    break;
+                case PROFIT_COST_RATIO_ASCENDING:
+                default:
+                    isKeyChanged = new boolean[ this.numberOfCustomers ];
+                    for ( int i = 0; i < this.numberOfCustomers; i++ ) {
+                        isKeyChanged[ i ] = isCostChanged[ i ] || isProfitChanged[ i ];
+                    }
+                    break;
+            }
 
-                // Add enhancements dependencies
-                enhancementsList = this.getTheEnhancementsListWithItsDependencies(
-                        new ArrayList<>( enhancementsList ) );
+            int[] previousOrder = nrpInstance.getCustomerOrder( ordering );
+            int[] customerOrder = this.updateCustomerOrder( ordering, previousOrder,
+                    customerMap, isKeyChanged );
+            if ( customerOrder == null ) {
+                this.customerOrders[ ordering.ordinal() ] = previousOrder;
+                this.customerRanks[ ordering.ordinal() ] = nrpInstance.getCustomerRanks( ordering );
+                continue;
+            }
 
-                int customerId = i + 1;
-                Customer customer = new Customer( customerId, profitOfCustomer, enhancementsList,
-                        numberOfRequests );
-                this.customersList.add( customer );
+            int[] customerRank = new int[ this.numberOfCustomers ];
+            for ( int rank = 0; rank < this.numberOfCustomers; rank++ ) {
+                customerRank[ customerOrder[ rank ] ] = rank;
             }
 
-        } catch ( IOException e ) {
-            e.printStackTrace();
+            this.customerOrders[ ordering.ordinal() ] = customerOrder;
+            this.customerRanks[ ordering.ordinal() ] = customerRank;
         }
+
+        this.totalCost = changedEnhancements.isEmpty()
+                ? nrpInstance.totalCost
+                : NRPInstance.sum( this.enhancementCosts );
+        this.costLimit = this.totalCost * this.costLimitRatio;
     }
 
     /**
-     * Set the totalCost
+     * @param nrpInstance
+     * @param delta
+     * @throws IllegalArgumentException
+     *             if the delta has an id the instance doesn't have
      */
-    private void setTotalCost()
+    private static void checkDelta( NRPInstance nrpInstance, NRPInstanceDelta delta )
     {
-        double totalCost = 0.0;
-        for ( Enhancement enhancement : this.enhancementsList ) {
-            totalCost += enhancement.getCost();
+        for ( int enhancementIndex : delta.getEnhancementCosts().keySet() ) {
+            NRPInstance.checkIndex( "enhancement", enhancementIndex,
+                    nrpInstance.numberOfEnhancements );
+        }
+        for ( int[] requestedEnhancementIndices : delta.getAddedCustomerRequests() ) {
+            for ( int enhancementIndex : requestedEnhancementIndices ) {
+                NRPInstance.checkIndex( "enhancement", enhancementIndex,
+                        nrpInstance.numberOfEnhancements );
+            }
         }
+        for ( int customerIndex : delta.getCustomerProfits().keySet() ) {
+            NRPInstance.checkIndex( "customer", customerIndex, nrpInstance.numberOfCustomers );
+        }
+        if ( delta.getRemovedCustomers().length() > nrpInstance.numberOfCustomers ) {
+            NRPInstance.checkIndex( "customer", delta.getRemovedCustomers().length() - 1,
+                    nrpInstance.numberOfCustomers );
+        }
+    }
 
-        this.totalCost = totalCost;
+    /**
+     * @param name
+     * @param index
+     * @param size
+     * @throws IllegalArgumentException
+     *             if the index is not in [ 0, size )
+     */
+    private static void checkIndex( String name, int index, int size )
+    {
+        if ( index < 0 || index >= size ) {
+            throw new IllegalArgumentException( name + " " + ( index + 1 ) + " does not exist" );
+        }
     }
 
     /**
-     * Set the costLimit
+     * Copy the requirement rows of the remaining customers and expand the requests of
+     * the added ones after them, the requirementOffsets are filled
+     *
+     * @param nrpInstance
+     *            the previous instance
+     * @param previousCustomers
+     *            the previous index of every remaining customer
+     * @param addedCustomerRequests
+     * @return the requirement indices
      */
-    private void setCostLimit()
+    private int[] getRequirements( NRPInstance nrpInstance, int[] previousCustomers,
+            List< int[] > addedCustomerRequests )
     {
-        double costLimit = 0.0;
-        if ( this.totalCost == 0 ) {
-            this.setTotalCost();
+        int numberOfRemainingCustomers = this.numberOfCustomers - addedCustomerRequests.size();
+
+        int[] requestOffsets = new int[ addedCustomerRequests.size() + 1 ];
+        NRPIntPages requestRows = new NRPIntPages();
+        for ( int i = 0; i < addedCustomerRequests.size(); i++ ) {
+            int[] requestedEnhancementIndices = addedCustomerRequests.get( i );
+            requestRows.addAll( requestedEnhancementIndices, requestedEnhancementIndices.length );
+            requestOffsets[ i + 1 ] = (int) requestRows.size();
+        }
+
+        int[] addedRequirementOffsets = new int[ addedCustomerRequests.size() + 1 ];
+        int[] addedRequirementIndices = new int[ 0 ];
+        if ( !addedCustomerRequests.isEmpty() ) {
+            addedRequirementIndices = new NRPClosureStage( this.numberOfEnhancements,
+                    this.dependencyOffsets, this.dependencyIndices ).expandCustomers(
+                            requestOffsets, requestRows.toArray(), addedRequirementOffsets );
         }
 
-        costLimit = this.totalCost * this.costLimitRatio;
-        this.costLimit = costLimit;
+        long numberOfRequirements = addedRequirementIndices.length;
+        for ( int i = 0; i < numberOfRemainingCustomers; i++ ) {
+            numberOfRequirements += nrpInstance.requirementOffsets[ previousCustomers[ i ] + 1 ]
+                    - nrpInstance.requirementOffsets[ previousCustomers[ i ] ];
+        }
+        if ( numberOfRequirements > Integer.MAX_VALUE - 8 ) {
+            throw new IllegalStateException(
+                    "the requirements of the customers don't fit in an array" );
+        }
+
+        int[] requirementIndices = new int[ (int) numberOfRequirements ];
+        int position = 0;
+        for ( int i = 0; i < numberOfRemainingCustomers; i++ ) {
+            int from = nrpInstance.requirementOffsets[ previousCustomers[ i ] ];
+            int to = nrpInstance.requirementOffsets[ previousCustomers[ i ] + 1 ];
+
+            System.arraycopy( nrpInstance.requirementIndices, from, requirementIndices, position,
+                    to - from );
+            position += to - from;
+            this.requirementOffsets[ i + 1 ] = position;
+        }
+        System.arraycopy( addedRequirementIndices, 0, requirementIndices, position,
+                addedRequirementIndices.length );
+        for ( int i = 0; i < addedCustomerRequests.size(); i++ ) {
+            this.requirementOffsets[ numberOfRemainingCustomers + i + 1 ]
+                    = position + addedRequirementOffsets[ i + 1 ];
+        }
+
+        return requirementIndices;
     }
 
     /**
-     * @return the enhancementsList
+     * @param customerIndex
+     * @return the cost of the full requirements of the customer
      */
-    protected List< Enhancement > getEnhancementsList()
+    private double sumCustomerCost( int customerIndex )
     {
-        List< Enhancement > copyOfEnhancementsList = new ArrayList<>( this.enhancementsList );
+        double customerCost = 0.0;
+        for ( int i = this.requirementOffsets[ customerIndex ];
+                i < this.requirementOffsets[ customerIndex + 1 ]; i++ ) {
+            customerCost += this.enhancementCosts[ this.requirementIndices[ i ] ];
+        }
 
-        return copyOfEnhancementsList;
+        return customerCost;
     }
 
     /**
-     * @return the customersList
+     * @param values
+     * @return the sum of the values
      */
-    protected List< Customer > getCustomersList()
+    private static double sum( double[] values )
     {
-        List< Customer > copyOfCustomersList = new ArrayList<>( this.customersList );
+        double sum = 0.0;
+        for ( double value : values ) {
+            sum += value;
+        }
 
-        return copyOfCustomersList;
+        return sum;
     }
 
     /**
-     * @return the instanceId
+     * Build the inverse of CSR rows, the row of every column lists the rows which
+     * have it, in order
+     *
+     * @param offsets
+     * @param indices
+     * @param invertedOffsets
+     *            filled with the offsets of the inverted rows, one more than the
+     *            number of columns
+     * @return the inverted indices
      */
-    protected int getInstanceId()
+    private static int[] invertRows( int[] offsets, int[] indices, int[] invertedOffsets )
     {
-        return instanceId;
+        for ( int column : indices ) {
+            invertedOffsets[ column + 1 ]++;
+        }
+        for ( int i = 0; i + 1 < invertedOffsets.length; i++ ) {
+            invertedOffsets[ i + 1 ] += invertedOffsets[ i ];
+        }
+
+        int[] invertedIndices = new int[ indices.length ];
+        int[] nextRow = Arrays.copyOf( invertedOffsets, invertedOffsets.length - 1 );
+        for ( int row = 0; row + 1 < offsets.length; row++ ) {
+            for ( int i = offsets[ row ]; i < offsets[ row + 1 ]; i++ ) {
+                invertedIndices[ nextRow[ indices[ i ] ]++ ] = row;
+            }
+        }
+
+        return invertedIndices;
     }
 
     /**
-     * @return the totalCost
+     * Sort every row and drop the repeated entries, the offsets are adjusted in
+     * place
+     *
+     * @param offsets
+     * @param indices
+     * @return the compacted indices
      */
-    protected double getTotalCost()
+    private static int[] sortAndRemoveDuplicates( int[] offsets, int[] indices )
     {
-        return totalCost;
+        int size = 0;
+        for ( int row = 0; row + 1 < offsets.length; row++ ) {
+            int start = offsets[ row ];
+            int end = offsets[ row + 1 ];
+            Arrays.sort( indices, start, end );
+
+            offsets[ row ] = size;
+            for ( int i = start; i < end; i++ ) {
+                if ( i == start || indices[ i ] != indices[ i - 1 ] ) {
+                    indices[ size++ ] = indices[ i ];
+                }
+            }
+        }
+        offsets[ offsets.length - 1 ] = size;
+
+        return Arrays.copyOf( indices, size );
     }
 
     /**
-     * @return the costLimit
+     * @param indices
+     * @return the ids (index + 1) separated by commas
      */
-    protected double getCostLimit()
+    private static String toIds( int[] indices )
     {
-        return costLimit;
+        StringBuilder stringBuilder = new StringBuilder();
+        for ( int i = 0; i < indices.length; i++ ) {
+            if ( i > 0 ) {
+                stringBuilder.append( ", " );
+            }
+
+            stringBuilder.append( indices[ i ] + 1 );
+        }
+
+        return stringBuilder.toString();
     }
 
     /**
-     * @return the numberOfEnhancements
+     * @param ordering
+     * @return the customer indices sorted by the ordering, ties by index
      */
-    protected int getNumberOfEnhancements()
+    private int[] sortCustomers( NRPCustomerOrdering ordering )
     {
-        return numberOfEnhancements;
+        double[] sortKeys = this.getSortKeys( ordering );
+
+        int[] customerOrder = new int[ this.numberOfCustomers ];
+        for ( int i = 0; i < this.numberOfCustomers; i++ ) {
+            customerOrder[ i ] = i;
+        }
+        NRPInstance.mergeSort( customerOrder, customerOrder.clone(), 0, this.numberOfCustomers,
+                sortKeys );
+
+        return customerOrder;
     }
 
     /**
-     * @return the numberOfCustomers
+     * The customers whose key didn't change keep their relative order from the
+     * previous instance, only the others are sorted and merged into it
+     *
+     * @param ordering
+     * @param previousOrder
+     *            the order of the customers of the previous instance
+     * @param customerMap
+     *            the index of every customer of the previous instance, -1 if removed
+     * @param isKeyChanged
+     * @return the customer indices sorted by the ordering, null if the previous
+     *         order is still right
      */
-    protected int getNumberOfCustomers()
+    private int[] updateCustomerOrder( NRPCustomerOrdering ordering, int[] previousOrder,
+            int[] customerMap, boolean[] isKeyChanged )
     {
-        return numberOfCustomers;
+        int numberOfChangedCustomers = 0;
+        for ( boolean isChanged : isKeyChanged ) {
+            numberOfChangedCustomers += isChanged ? 1 : 0;
+        }
+        if ( numberOfChangedCustomers == 0 && previousOrder.length == this.numberOfCustomers ) {
+            boolean isMoved = false;
+            for ( int i = 0; i < customerMap.length && !isMoved; i++ ) {
+                isMoved = customerMap[ i ] != i;
+            }
+            if ( !isMoved ) {
+                return null;
+            }
+        }
+
+        double[] sortKeys = this.getSortKeys( ordering );
+
+        int[] changedCustomers = new int[ numberOfChangedCustomers ];
+        int changedIndex = 0;
+        for ( int i = 0; i < this.numberOfCustomers; i++ ) {
+            if ( isKeyChanged[ i ] ) {
+                changedCustomers[ changedIndex++ ] = i;
+            }
+        }
+        NRPInstance.mergeSort( changedCustomers, changedCustomers.clone(), 0,
+                numberOfChangedCustomers, sortKeys );
+
+        /*
+         * Removing customers keeps the order of the indices, so the ties of the
+         * remaining customers are still in order
+         */
+        int[] unchangedCustomers = new int[ this.numberOfCustomers - numberOfChangedCustomers ];
+        int unchangedIndex = 0;
+        for ( int previousCustomer : previousOrder ) {
+            int customerIndex = customerMap[ previousCustomer ];
+            if ( customerIndex >= 0 && !isKeyChanged[ customerIndex ] ) {
+                unchangedCustomers[ unchangedIndex++ ] = customerIndex;
+            }
+        }
+
+        int[] customerOrder = new int[ this.numberOfCustomers ];
+        int left = 0;
+        int right = 0;
+        for ( int i = 0; i < this.numberOfCustomers; i++ ) {
+            if ( right >= changedCustomers.length || ( left < unchangedCustomers.length
+                    && NRPInstance.compareCustomers( unchangedCustomers[ left ],
+                            changedCustomers[ right ], sortKeys ) <= 0 ) ) {
+                customerOrder[ i ] = unchangedCustomers[ left++ ];
+            } else {
+                customerOrder[ i ] = changedCustomers[ right++ ];
+            }
+        }
+
+        return customerOrder;
     }
 
     /**
-     * @return the costLimitRatio
+     * Every ordering is ascending on a key, the cost descending on the negated cost
+     *
+     * @param ordering
+     * @return the key of every customer in the ordering
      */
-    protected double getCostLimitRatio()
+    private double[] getSortKeys( NRPCustomerOrdering ordering )
     {
-        return costLimitRatio;
+        double[] sortKeys = new double[ this.numberOfCustomers ];
+        for ( int i = 0; i < this.numberOfCustomers; i++ ) {
+            switch ( ordering ) {
+                case COST_DESCENDING:
+                    sortKeys[ i ] = -this.customerCosts[ i ];
+                    break;
+                case PROFIT_ASCENDING:
+                    sortKeys[ i ] = this.customerProfits[ i ];
+                    break;
+                case PROFIT_COST_RATIO_ASCENDING:
+                default:
+                    sortKeys[ i ] = this.customerProfits[ i ] / this.customerCosts[ i ];
+                    break;
+            }
+        }
+
+        return sortKeys;
     }
 
     /**
-     * @param enhancementIdSet
-     * @return the enhancement set along with its dependencies
+     * Sort the customers of [ from, to ) by their key, ties by index, without boxing
+     * them. The scratch array must hold the same entries as the customers array
+     *
+     * @param customers
+     * @param scratch
+     * @param from
+     * @param to
+     * @param sortKeys
      */
-    private List< Enhancement > getTheEnhancementsListWithItsDependencies(
-            List< Enhancement > enhancementsList )
+    private static void mergeSort( int[] customers, int[] scratch, int from, int to,
+            double[] sortKeys )
     {
-        List< Enhancement > newEnhancementsList = new ArrayList<>( enhancementsList );
-
-        for ( Enhancement enhancement : enhancementsList ) {
+        if ( to - from < 16 ) {
+            for ( int i = from + 1; i < to; i++ ) {
+                int customer = customers[ i ];
 
-            List< Enhancement > currentDependenciesList
-                    = this.getEnhancementDependencies( enhancement );
+                int j = i - 1;
+                while ( j >= from && NRPInstance.compareCustomers( customers[ j ], customer,
+                        sortKeys ) > 0 ) {
+                    customers[ j + 1 ] = customers[ j ];
+                    j--;
+                }
+                customers[ j + 1 ] = customer;
+            }
 
-            if ( !currentDependenciesList.isEmpty() ) {
+            return;
+        }
 
-                if ( currentDependenciesList.size() > 1 ) {
-                    List< Enhancement > dependenciesList = this
-                            .getTheEnhancementsListWithItsDependencies( currentDependenciesList );
+        /*
+         * Sort both halves into the scratch array and merge them back
+         */
+        int middle = ( from + to ) >>> 1;
+        NRPInstance.mergeSort( scratch, customers, from, middle, sortKeys );
+        NRPInstance.mergeSort( scratch, customers, middle, to, sortKeys );
 
-                    for ( Enhancement dependency : dependenciesList ) {
-                        if ( !newEnhancementsList.contains( dependency ) ) {
-                            newEnhancementsList.add( dependency );
-                        }
-                    }
-                } else {
-                    for ( Enhancement dependency : currentDependenciesList ) {
-                        if ( !newEnhancementsList.contains( dependency ) ) {
-                            newEnhancementsList.add( dependency );
-                        }
-                    }
-                }
+        int left = from;
+        int right = middle;
+        for ( int i = from; i < to; i++ ) {
+            if ( right >= to || ( left < middle && NRPInstance.compareCustomers( scratch[ left ],
+                    scratch[ right ], sortKeys ) <= 0 ) ) {
+                customers[ i ] = scratch[ left++ ];
+            } else {
+                customers[ i ] = scratch[ right++ ];
             }
         }
+    }
+
+    private static int compareCustomers( int customer1, int customer2, double[] sortKeys )
+    {
+        int comparison = Double.compare( sortKeys[ customer1 ], sortKeys[ customer2 ] );
+
+        return comparison != 0 ? comparison : Integer.compare( customer1, customer2 );
+    }
+
+    /**
+     * @return the cost of every enhancement by index, the array is shared and must
+     *         not be modified
+     */
+    protected double[] getEnhancementCosts()
+    {
+        return enhancementCosts;
+    }
+
+    /**
+     * @return the offsets of the dependency rows of the enhancements, the array is
+     *         shared and must not be modified
+     */
+    protected int[] getDependencyOffsets()
+    {
+        return dependencyOffsets;
+    }
+
+    /**
+     * @return the direct dependencies of all enhancements, the array is shared and
+     *         must not be modified
+     */
+    protected int[] getDependencyIndices()
+    {
+        return dependencyIndices;
+    }
+
+    /**
+     * @return the enhancement indices of every dependency cycle, the list is shared
+     *         and must not be modified
+     */
+    protected List< int[] > getDependencyCycles()
+    {
+        return dependencyCycles;
+    }
+
+    /**
+     * @return the profit of every customer by index, the array is shared and must
+     *         not be modified
+     */
+    protected double[] getCustomerProfits()
+    {
+        return customerProfits;
+    }
+
+    /**
+     * @return the cost of the full requirements of every customer by index, the
+     *         array is shared and must not be modified
+     */
+    protected double[] getCustomerCosts()
+    {
+        return customerCosts;
+    }
+
+    /**
+     * @return the offsets of the requirement rows of the customers, the array is
+     *         shared and must not be modified
+     */
+    protected int[] getRequirementOffsets()
+    {
+        return requirementOffsets;
+    }
+
+    /**
+     * @return the requirements of all customers, the array is shared and must not
+     *         be modified
+     */
+    protected int[] getRequirementIndices()
+    {
+        return requirementIndices;
+    }
+
+    /**
+     * @return the offsets of the rows of customers which need each enhancement, the
+     *         array is shared and must not be modified
+     */
+    protected int[] getEnhancementCustomerOffsets()
+    {
+        return enhancementCustomerOffsets;
+    }
+
+    /**
+     * @return the customers which need each enhancement, the array is shared and
+     *         must not be modified
+     */
+    protected int[] getEnhancementCustomerIndices()
+    {
+        return enhancementCustomerIndices;
+    }
+
+    /**
+     * @param ordering
+     * @return the customer at every rank of the ordering, the array is shared and
+     *         must not be modified
+     */
+    protected int[] getCustomerOrder( NRPCustomerOrdering ordering )
+    {
+        return customerOrders[ ordering.ordinal() ];
+    }
+
+    /**
+     * @param ordering
+     * @return the rank of every customer in the ordering, the array is shared and
+     *         must not be modified
+     */
+    protected int[] getCustomerRanks( NRPCustomerOrdering ordering )
+    {
+        return customerRanks[ ordering.ordinal() ];
+    }
+
+    /**
+     * @return the instanceId
+     */
+    protected int getInstanceId()
+    {
+        return instanceId;
+    }
 
-        return newEnhancementsList;
+    /**
+     * @return the totalCost
+     */
+    protected double getTotalCost()
+    {
+        return totalCost;
+    }
+
+    /**
+     * @return the costLimit
+     */
+    protected double getCostLimit()
+    {
+        return costLimit;
     }
 
     /**
-     * @param enhancement
-     * @return the dependencies set of an enhancement
+     * @return the numberOfEnhancements
      */
-    private List< Enhancement > getEnhancementDependencies( Enhancement enhancement )
+    protected int getNumberOfEnhancements()
     {
-        int enhancementId = enhancement.getId();
-        Enhancement parentEnhancement = this.enhancementsList.get( enhancementId - 1 );
+        return numberOfEnhancements;
+    }
 
-        List< Enhancement > parentEnhancementsList
-                = parentEnhancement.getDependencyEnhancementsList();
+    /**
+     * @return the numberOfCustomers
+     */
+    protected int getNumberOfCustomers()
+    {
+        return numberOfCustomers;
+    }
 
-        return parentEnhancementsList;
+    /**
+     * @return the costLimitRatio
+     */
+    protected double getCostLimitRatio()
+    {
+        return costLimitRatio;
     }
 
     @Override
@@ -293,12 +1016,13 @@ class NRPInstance
         // Customers
         stringBuilder.append( "All Customers: \n" );
         stringBuilder.append( "customerId, customerProfit, customerCost, requirements" );
-        for ( Customer customer : this.customersList ) {
-            stringBuilder.append( "\n" + customer.getId() + ", " + customer.getProfit() + ", "
-                    + customer.getOriginalCost() + ", [" );
+        for ( int i = 0; i < this.numberOfCustomers; i++ ) {
+            stringBuilder.append( "\n" + ( i + 1 ) + ", " + this.customerProfits[ i ] + ", "
+                    + this.customerCosts[ i ] + ", [" );
 
-            for ( Enhancement enhancement : customer.getOriginalEnhancementsList() ) {
-                stringBuilder.append( " " + enhancement.getId() );
+            for ( int j = this.requirementOffsets[ i ]; j < this.requirementOffsets[ i + 1 ];
+                    j++ ) {
+                stringBuilder.append( " " + ( this.requirementIndices[ j ] + 1 ) );
             }
 
             stringBuilder.append( " ]" );
@@ -306,12 +1030,12 @@ class NRPInstance
 
         stringBuilder.append( "\nAll Enhancemens: \n" );
         stringBuilder.append( "enhancementId, enhancementCost, enhancementDependencies" );
-        for ( Enhancement enhancement : this.enhancementsList ) {
-            stringBuilder
-                    .append( "\n" + enhancement.getId() + ", " + enhancement.getCost() + ", [" );
+        for ( int i = 0; i < this.numberOfEnhancements; i++ ) {
+            stringBuilder.append( "\n" + ( i + 1 ) + ", " + this.enhancementCosts[ i ] + ", [" );
 
-            for ( Enhancement enhancement2 : enhancement.getDependencyEnhancementsList() ) {
-                stringBuilder.append( " " + enhancement2.getId() );
+            for ( int j = this.dependencyOffsets[ i ]; j < this.dependencyOffsets[ i + 1 ];
+                    j++ ) {
+                stringBuilder.append( " " + ( this.dependencyIndices[ j ] + 1 ) );
             }
 
             stringBuilder.append( " ]" );
@@ -0,0 +1,421 @@
+package nrp;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshots of parsed instances. Snapshots are opt-in: they are only read
+ * and written when a snapshot directory is set, with the snapshotDirectoryProperty
+ * system property or setSnapshotDirectory, so the instance directories are never
+ * written to. A snapshot holds the flat arrays of the instance with the requirement
+ * closures and the dependency cycles already computed, so loading it skips both the
+ * parsing and the closure computation. It also holds the length and the CRC32 of the
+ * instance file it was built from and the CRC32 of its own payload, a snapshot which
+ * doesn't match is ignored and written again
+ */
+class NRPInstanceCache
+{
+    protected static final String snapshotDirectoryProperty = "nrp.snapshotDirectory";
+    private static final String snapshotExtension = ".snapshot";
+    private static final int magicNumber = 0x4E525053;
+    private static final int formatVersion = 2;
+    private static final long checksumWindowSize = 1L << 26;
+
+    private static volatile Path snapshotDirectory
+            = System.getProperty( snapshotDirectoryProperty ) != null
+                    ? Paths.get( System.getProperty( snapshotDirectoryProperty ) )
+                    : null;
+
+    /*
+     * magicNumber, formatVersion, source length, source checksum, payload length and
+     * payload checksum
+     */
+    private static final int headerSize = 4 + 4 + 8 + 8 + 4 + 8;
+
+    /**
+     * @param instanceId
+     * @param pathToInstanceFile
+     * @return the instance from the snapshot if it is up to date, else parsed from the
+     *         file
+     * @throws IOException
+     *             if the instance file can't be read or is malformed
+     */
+    protected static NRPInstance load( int instanceId, Path pathToInstanceFile )
+            throws IOException
+    {
+        NRPInstance nrpInstance;
+        long sourceLength;
+        long sourceChecksum;
+        Path snapshotDirectory = NRPInstanceCache.snapshotDirectory;
+
+        try ( FileChannel fileChannel
+                = FileChannel.open( pathToInstanceFile, StandardOpenOption.READ ) ) {
+            if ( snapshotDirectory == null ) {
+                return NRPInstance.parse( instanceId,
+                        new NRPInstanceParser( pathToInstanceFile.toString(), fileChannel ) );
+            }
+
+            sourceLength = fileChannel.size();
+            sourceChecksum = NRPInstanceCache.getChecksum( fileChannel );
+
+            nrpInstance = NRPInstanceCache.readSnapshot( instanceId,
+                    NRPInstanceCache.getSnapshotPath( snapshotDirectory, pathToInstanceFile ),
+                    sourceLength, sourceChecksum );
+            if ( nrpInstance != null ) {
+                nrpInstance.printDependencyCycles( pathToInstanceFile.toString() );
+                return nrpInstance;
+            }
+
+            fileChannel.position( 0 );
+            nrpInstance = NRPInstance.parse( instanceId,
+                    new NRPInstanceParser( pathToInstanceFile.toString(), fileChannel ) );
+        }
+
+        /*
+         * The instance is still usable when the snapshot can't be written, for example
+         * in a read-only directory
+         */
+        Path pathToSnapshot
+                = NRPInstanceCache.getSnapshotPath( snapshotDirectory, pathToInstanceFile );
+        try {
+            Files.createDirectories( snapshotDirectory );
+            NRPInstanceCache.writeSnapshot( nrpInstance, pathToSnapshot, sourceLength,
+                    sourceChecksum );
+        } catch ( IOException e ) {
+            System.err.println( "Snapshot not written: " + pathToSnapshot + ", " + e );
+        }
+
+        return nrpInstance;
+    }
+
+    /**
+     * @return the directory of the snapshots, null when snapshots are off
+     */
+    protected static Path getSnapshotDirectory()
+    {
+        return snapshotDirectory;
+    }
+
+    /**
+     * @param snapshotDirectory
+     *            the directory of the snapshots, created when the first snapshot is
+     *            written, null to turn snapshots off
+     */
+    protected static void setSnapshotDirectory( Path snapshotDirectory )
+    {
+        NRPInstanceCache.snapshotDirectory = snapshotDirectory;
+    }
+
+    /**
+     * Instance files of different directories may have the same name, the hash of
+     * the full path of the instance file keeps their snapshots apart
+     *
+     * @param snapshotDirectory
+     * @param pathToInstanceFile
+     * @return the path of the snapshot of the instance file
+     */
+    protected static Path getSnapshotPath( Path snapshotDirectory, Path pathToInstanceFile )
+    {
+        String pathHash = Integer.toHexString(
+                pathToInstanceFile.toAbsolutePath().normalize().toString().hashCode() );
+
+        return snapshotDirectory.resolve(
+                pathToInstanceFile.getFileName() + "-" + pathHash + snapshotExtension );
+    }
+
+    /**
+     * @param instanceId
+     * @param pathToSnapshot
+     * @param sourceLength
+     * @param sourceChecksum
+     * @return the instance of the snapshot, null if there is no snapshot or it
+     *         doesn't match the instance file
+     */
+    private static NRPInstance readSnapshot( int instanceId, Path pathToSnapshot,
+            long sourceLength, long sourceChecksum )
+    {
+        if ( !Files.isRegularFile( pathToSnapshot ) ) {
+            return null;
+        }
+
+        try ( FileChannel fileChannel
+                = FileChannel.open( pathToSnapshot, StandardOpenOption.READ ) ) {
+            long size = fileChannel.size();
+            if ( size < headerSize || size > Integer.MAX_VALUE ) {
+                return null;
+            }
+
+            MappedByteBuffer snapshot
+                    = fileChannel.map( FileChannel.MapMode.READ_ONLY, 0, size );
+            if ( snapshot.getInt() != magicNumber || snapshot.getInt() != formatVersion
+                    || snapshot.getLong() != sourceLength
+                    || snapshot.getLong() != sourceChecksum
+                    || snapshot.getInt() != size - headerSize ) {
+                return null;
+            }
+
+            long payloadChecksum = snapshot.getLong();
+            ByteBuffer payload = snapshot.slice();
+            if ( NRPInstanceCache.getChecksum( payload.duplicate() ) != payloadChecksum ) {
+                return null;
+            }
+
+            double costLimitRatio = payload.getDouble();
+            int numberOfEnhancements = payload.getInt();
+            int numberOfDependencies = payload.getInt();
+            int numberOfCustomers = payload.getInt();
+            int numberOfRequirements = payload.getInt();
+
+            double[] enhancementCosts
+                    = NRPInstanceCache.getDoubles( payload, numberOfEnhancements );
+            double[] customerProfits = NRPInstanceCache.getDoubles( payload, numberOfCustomers );
+            int[] dependencyOffsets = NRPInstanceCache.getInts( payload, numberOfEnhancements + 1 );
+            int[] dependencyIndices = NRPInstanceCache.getInts( payload, numberOfDependencies );
+            int[] requirementOffsets = NRPInstanceCache.getInts( payload, numberOfCustomers + 1 );
+            int[] requirementIndices = NRPInstanceCache.getInts( payload, numberOfRequirements );
+
+            int numberOfDependencyCycles = payload.getInt();
+            List< int[] > dependencyCycles = new ArrayList<>();
+            for ( int i = 0; i < numberOfDependencyCycles; i++ ) {
+                dependencyCycles.add( NRPInstanceCache.getInts( payload, payload.getInt() ) );
+            }
+
+            return new NRPInstance( instanceId, costLimitRatio, enhancementCosts,
+                    dependencyOffsets, dependencyIndices, dependencyCycles, customerProfits,
+                    requirementOffsets, requirementIndices );
+
+        } catch ( IOException | BufferUnderflowException | NegativeArraySizeException e ) {
+            return null;
+        }
+    }
+
+    /**
+     * Write the snapshot to a temporary file first and move it in place, so a
+     * snapshot is never read half written. The payload goes through a buffer of
+     * bufferSize bytes, the header is written last when the payload checksum is known
+     *
+     * @param nrpInstance
+     * @param pathToSnapshot
+     * @param sourceLength
+     * @param sourceChecksum
+     * @throws IOException
+     */
+    private static void writeSnapshot( NRPInstance nrpInstance, Path pathToSnapshot,
+            long sourceLength, long sourceChecksum ) throws IOException
+    {
+        double[] enhancementCosts = nrpInstance.getEnhancementCosts();
+        double[] customerProfits = nrpInstance.getCustomerProfits();
+        int[] dependencyOffsets = nrpInstance.getDependencyOffsets();
+        int[] dependencyIndices = nrpInstance.getDependencyIndices();
+        int[] requirementOffsets = nrpInstance.getRequirementOffsets();
+        int[] requirementIndices = nrpInstance.getRequirementIndices();
+        List< int[] > dependencyCycles = nrpInstance.getDependencyCycles();
+
+        long payloadSize = 8 + 4 * 4 + 8L * ( enhancementCosts.length + customerProfits.length )
+                + 4L * ( dependencyOffsets.length + dependencyIndices.length
+                        + requirementOffsets.length + requirementIndices.length )
+                + 4 + 4L * dependencyCycles.size();
+        for ( int[] dependencyCycle : dependencyCycles ) {
+            payloadSize += 4L * dependencyCycle.length;
+        }
+        if ( headerSize + payloadSize > Integer.MAX_VALUE ) {
+            throw new IOException( "instance too large for a snapshot" );
+        }
+
+        Path temporaryFile = Files.createTempFile( pathToSnapshot.toAbsolutePath().getParent(),
+                pathToSnapshot.getFileName().toString(), ".tmp" );
+        try {
+            try ( FileChannel fileChannel
+                    = FileChannel.open( temporaryFile, StandardOpenOption.WRITE ) ) {
+                SnapshotWriter payload = new SnapshotWriter( fileChannel, headerSize );
+                payload.putDouble( nrpInstance.getCostLimitRatio() );
+                payload.putInt( enhancementCosts.length );
+                payload.putInt( dependencyIndices.length );
+                payload.putInt( customerProfits.length );
+                payload.putInt( requirementIndices.length );
+                payload.putDoubles( enhancementCosts );
+                payload.putDoubles( customerProfits );
+                payload.putInts( dependencyOffsets );
+                payload.putInts( dependencyIndices );
+                payload.putInts( requirementOffsets );
+                payload.putInts( requirementIndices );
+                payload.putInt( dependencyCycles.size() );
+                for ( int[] dependencyCycle : dependencyCycles ) {
+                    payload.putInt( dependencyCycle.length );
+                    payload.putInts( dependencyCycle );
+                }
+                payload.flush();
+
+                ByteBuffer header = ByteBuffer.allocate( headerSize );
+                header.putInt( magicNumber );
+                header.putInt( formatVersion );
+                header.putLong( sourceLength );
+                header.putLong( sourceChecksum );
+                header.putInt( (int) payloadSize );
+                header.putLong( payload.getChecksum() );
+                header.flip();
+                while ( header.hasRemaining() ) {
+                    fileChannel.write( header, header.position() );
+                }
+                fileChannel.force( true );
+            }
+
+            try {
+                Files.move( temporaryFile, pathToSnapshot, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING );
+            } catch ( AtomicMoveNotSupportedException e ) {
+                Files.move( temporaryFile, pathToSnapshot, StandardCopyOption.REPLACE_EXISTING );
+            }
+        } finally {
+            Files.deleteIfExists( temporaryFile );
+        }
+    }
+
+    /**
+     * Writes the payload of a snapshot through a fixed buffer and keeps its checksum
+     */
+    private static class SnapshotWriter
+    {
+        private static final int bufferSize = 1 << 16;
+
+        private final FileChannel fileChannel;
+        private final ByteBuffer buffer = ByteBuffer.allocate( bufferSize );
+        private final CRC32 crc32 = new CRC32();
+        private long position;
+
+        /**
+         * @param fileChannel
+         * @param position
+         *            where the payload starts in the file
+         */
+        private SnapshotWriter( FileChannel fileChannel, long position )
+        {
+            this.fileChannel = fileChannel;
+            this.position = position;
+        }
+
+        private void putInt( int value ) throws IOException
+        {
+            this.ensureSpace( 4 );
+            this.buffer.putInt( value );
+        }
+
+        private void putDouble( double value ) throws IOException
+        {
+            this.ensureSpace( 8 );
+            this.buffer.putDouble( value );
+        }
+
+        private void putInts( int[] values ) throws IOException
+        {
+            for ( int i = 0; i < values.length; ) {
+                this.ensureSpace( 4 );
+
+                int count = Math.min( this.buffer.remaining() / 4, values.length - i );
+                this.buffer.asIntBuffer().put( values, i, count );
+                this.buffer.position( this.buffer.position() + 4 * count );
+                i += count;
+            }
+        }
+
+        private void putDoubles( double[] values ) throws IOException
+        {
+            for ( int i = 0; i < values.length; ) {
+                this.ensureSpace( 8 );
+
+                int count = Math.min( this.buffer.remaining() / 8, values.length - i );
+                this.buffer.asDoubleBuffer().put( values, i, count );
+                this.buffer.position( this.buffer.position() + 8 * count );
+                i += count;
+            }
+        }
+
+        private void ensureSpace( int bytes ) throws IOException
+        {
+            if ( this.buffer.remaining() < bytes ) {
+                this.flush();
+            }
+        }
+
+        private void flush() throws IOException
+        {
+            this.buffer.flip();
+            this.crc32.update( this.buffer.duplicate() );
+
+            while ( this.buffer.hasRemaining() ) {
+                this.position += this.fileChannel.write( this.buffer, this.position );
+            }
+            this.buffer.clear();
+        }
+
+        /**
+         * @return the checksum of everything flushed
+         */
+        private long getChecksum()
+        {
+            return this.crc32.getValue();
+        }
+    }
+
+    /**
+     * The file is mapped window by window, so files of any size can be hashed
+     *
+     * @param fileChannel
+     * @return the CRC32 of the whole file
+     * @throws IOException
+     */
+    private static long getChecksum( FileChannel fileChannel ) throws IOException
+    {
+        CRC32 crc32 = new CRC32();
+
+        long size = fileChannel.size();
+        for ( long position = 0; position < size; position += checksumWindowSize ) {
+            crc32.update( fileChannel.map( FileChannel.MapMode.READ_ONLY, position,
+                    Math.min( checksumWindowSize, size - position ) ) );
+        }
+
+        return crc32.getValue();
+    }
+
+    /**
+     * @param byteBuffer
+     * @return the CRC32 of the remaining bytes of the buffer
+     */
+    private static long getChecksum( ByteBuffer byteBuffer )
+    {
+        CRC32 crc32 = new CRC32();
+        crc32.update( byteBuffer );
+
+        return crc32.getValue();
+    }
+
+    private static double[] getDoubles( ByteBuffer byteBuffer, int length )
+    {
+        double[] doubles = new double[ length ];
+        byteBuffer.asDoubleBuffer().get( doubles );
+        byteBuffer.position( byteBuffer.position() + 8 * length );
+
+        return doubles;
+    }
+
+    private static int[] getInts( ByteBuffer byteBuffer, int length )
+    {
+        int[] ints = new int[ length ];
+        byteBuffer.asIntBuffer().get( ints );
+        byteBuffer.position( byteBuffer.position() + 4 * length );
+
+        return ints;
+    }
+}
@@ -0,0 +1,157 @@
+package nrp;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The changes between two planning cycles of an instance, applied with
+ * {@link NRP#applyInstanceDelta(NRPInstanceDelta)}. Ids are from 1 and refer to the
+ * instance the delta is applied to. The remaining customers keep their order once
+ * the removed ones are gone, the added customers come after them in the order they
+ * were added. Setting the same value twice keeps the last one
+ */
+public class NRPInstanceDelta
+{
+    private Double costLimitRatio = null;
+    private final Map< Integer, Double > enhancementCosts = new TreeMap<>();
+    private final Map< Integer, Double > customerProfits = new TreeMap<>();
+    private final BitSet removedCustomers = new BitSet();
+    private final List< Double > addedCustomerProfits = new ArrayList<>();
+    private final List< int[] > addedCustomerRequests = new ArrayList<>();
+
+    /**
+     * @param costLimitRatio
+     *            the costLimitRatio to set
+     */
+    public void setCostLimitRatio( double costLimitRatio )
+    {
+        this.costLimitRatio = costLimitRatio;
+    }
+
+    /**
+     * @param enhancementId
+     * @param enhancementCost
+     *            the new cost of the enhancement
+     */
+    public void setEnhancementCost( int enhancementId, double enhancementCost )
+    {
+        this.enhancementCosts.put( enhancementId - 1, enhancementCost );
+    }
+
+    /**
+     * @param customerId
+     * @param customerProfit
+     *            the new profit of the customer
+     */
+    public void setCustomerProfit( int customerId, double customerProfit )
+    {
+        this.customerProfits.put( customerId - 1, customerProfit );
+    }
+
+    /**
+     * @param customerId
+     *            the customer to remove
+     */
+    public void removeCustomer( int customerId )
+    {
+        if ( customerId < 1 ) {
+            throw new IllegalArgumentException( "customer " + customerId + " does not exist" );
+        }
+
+        this.removedCustomers.set( customerId - 1 );
+    }
+
+    /**
+     * @param customerProfit
+     * @param requestedEnhancementIds
+     *            the enhancements the customer asks for, their dependencies are added
+     *            to the requirements of the customer
+     */
+    public void addCustomer( double customerProfit, int... requestedEnhancementIds )
+    {
+        int[] requestedEnhancementIndices = new int[ requestedEnhancementIds.length ];
+        for ( int i = 0; i < requestedEnhancementIds.length; i++ ) {
+            requestedEnhancementIndices[ i ] = requestedEnhancementIds[ i ] - 1;
+        }
+
+        this.addedCustomerProfits.add( customerProfit );
+        this.addedCustomerRequests.add( requestedEnhancementIndices );
+    }
+
+    /**
+     * @return the costLimitRatio, null if it doesn't change
+     */
+    protected Double getCostLimitRatio()
+    {
+        return costLimitRatio;
+    }
+
+    /**
+     * @return the new costs by enhancement index
+     */
+    protected Map< Integer, Double > getEnhancementCosts()
+    {
+        return enhancementCosts;
+    }
+
+    /**
+     * @return the new profits by customer index, before the removed customers are
+     *         taken out
+     */
+    protected Map< Integer, Double > getCustomerProfits()
+    {
+        return customerProfits;
+    }
+
+    /**
+     * @return the indices of the removed customers
+     */
+    protected BitSet getRemovedCustomers()
+    {
+        return removedCustomers;
+    }
+
+    /**
+     * @return the profits of the added customers
+     */
+    protected List< Double > getAddedCustomerProfits()
+    {
+        return addedCustomerProfits;
+    }
+
+    /**
+     * @return the requested enhancement indices of the added customers
+     */
+    protected List< int[] > getAddedCustomerRequests()
+    {
+        return addedCustomerRequests;
+    }
+
+    /**
+     * @return true if customers are added or removed, so the customer indices change
+     */
+    protected boolean changesCustomers()
+    {
+        return !this.removedCustomers.isEmpty() || !this.addedCustomerProfits.isEmpty();
+    }
+
+    /**
+     * @param numberOfCustomers
+     *            the number of customers of the instance the delta is applied to
+     * @return the new index of every customer of that instance, -1 if it is removed
+     */
+    protected int[] getCustomerMap( int numberOfCustomers )
+    {
+        int[] customerMap = new int[ numberOfCustomers ];
+
+        int customerIndex = 0;
+        for ( int i = 0; i < numberOfCustomers; i++ ) {
+            customerMap[ i ] = this.removedCustomers.get( i ) ? -1 : customerIndex++;
+        }
+
+        return customerMap;
+    }
+}
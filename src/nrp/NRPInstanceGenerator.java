@@ -0,0 +1,298 @@
+package nrp;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Seeded generator of synthetic instances in the text format of the bundled
+ * instance files, for stress tests far beyond the size of nrp4. The instance is
+ * streamed to the output while it is generated, only the enhancements of one level
+ * are ever held in memory. Enhancements of a level depend on enhancements of the
+ * level below, so the dependencies never have a cycle. The same parameters and seed
+ * always give the same instance
+ */
+public class NRPInstanceGenerator
+{
+    private final long seed;
+
+    private int numberOfLevels = 3;
+    private int enhancementsPerLevel = 1000;
+    private double dependencyDensity = 1.0;
+    private int numberOfCustomers = 1000;
+    private int requestsPerCustomer = 5;
+    private double costRatio = 0.5;
+    private int maximumEnhancementCost = 10;
+    private int maximumCustomerProfit = 50;
+
+    /**
+     * @param seed
+     */
+    public NRPInstanceGenerator( long seed )
+    {
+        this.seed = seed;
+    }
+
+    /**
+     * @param numberOfLevels
+     *            the numberOfLevels to set
+     */
+    public void setNumberOfLevels( int numberOfLevels )
+    {
+        this.numberOfLevels = numberOfLevels;
+    }
+
+    /**
+     * @param enhancementsPerLevel
+     *            the enhancementsPerLevel to set
+     */
+    public void setEnhancementsPerLevel( int enhancementsPerLevel )
+    {
+        this.enhancementsPerLevel = enhancementsPerLevel;
+    }
+
+    /**
+     * @param dependencyDensity
+     *            the mean number of dependencies of every enhancement above the first
+     *            level, at most the number of enhancements per level
+     */
+    public void setDependencyDensity( double dependencyDensity )
+    {
+        this.dependencyDensity = dependencyDensity;
+    }
+
+    /**
+     * @param numberOfCustomers
+     *            the numberOfCustomers to set
+     */
+    public void setNumberOfCustomers( int numberOfCustomers )
+    {
+        this.numberOfCustomers = numberOfCustomers;
+    }
+
+    /**
+     * @param requestsPerCustomer
+     *            the maximum number of requested enhancements of a customer, every
+     *            customer requests from 1 to requestsPerCustomer enhancements
+     */
+    public void setRequestsPerCustomer( int requestsPerCustomer )
+    {
+        this.requestsPerCustomer = requestsPerCustomer;
+    }
+
+    /**
+     * @param costRatio
+     *            the cost limit ratio of the instance
+     */
+    public void setCostRatio( double costRatio )
+    {
+        this.costRatio = costRatio;
+    }
+
+    /**
+     * @param maximumEnhancementCost
+     *            enhancements cost from 1 to maximumEnhancementCost
+     */
+    public void setMaximumEnhancementCost( int maximumEnhancementCost )
+    {
+        this.maximumEnhancementCost = maximumEnhancementCost;
+    }
+
+    /**
+     * @param maximumCustomerProfit
+     *            customers have a profit from 1 to maximumCustomerProfit
+     */
+    public void setMaximumCustomerProfit( int maximumCustomerProfit )
+    {
+        this.maximumCustomerProfit = maximumCustomerProfit;
+    }
+
+    /**
+     * @return a name which tells every parameter of the instance, generators with
+     *         different parameters never share a file
+     */
+    public String getInstanceName()
+    {
+        return "generated-" + this.numberOfLevels + "x" + this.enhancementsPerLevel + "-"
+                + this.dependencyDensity + "-" + this.numberOfCustomers + "x"
+                + this.requestsPerCustomer + "-" + this.costRatio + "-"
+                + this.maximumEnhancementCost + "-" + this.maximumCustomerProfit + "-"
+                + this.seed;
+    }
+
+    /**
+     * Write the instance to a file, replacing it if it exists
+     *
+     * @param path
+     * @throws IOException
+     */
+    public void write( Path path ) throws IOException
+    {
+        try ( OutputStream outputStream = Files.newOutputStream( path ) ) {
+            this.write( outputStream );
+        }
+    }
+
+    /**
+     * Write the instance to the stream, the stream is flushed but not closed
+     *
+     * @param outputStream
+     * @throws IOException
+     */
+    public void write( OutputStream outputStream ) throws IOException
+    {
+        this.checkParameters();
+
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter( outputStream, StandardCharsets.US_ASCII ), 1 << 16 );
+
+        writer.write( this.costRatio + "\n" );
+
+        /*
+         * The enhancement costs, level by level
+         */
+        Random costRandom = new Random( this.seed );
+        writer.write( this.numberOfLevels + "\n" );
+        for ( int level = 0; level < this.numberOfLevels; level++ ) {
+            writer.write( this.enhancementsPerLevel + "\n" );
+
+            for ( int i = 0; i < this.enhancementsPerLevel; i++ ) {
+                writer.write( ( 1 + costRandom.nextInt( this.maximumEnhancementCost ) ) + " " );
+            }
+            writer.write( "\n" );
+        }
+
+        /*
+         * The number of dependencies has to be written before them, so they are
+         * generated twice from the same seeds, once to count them and once to write
+         * them
+         */
+        writer.write( this.writeDependencies( null ) + "\n" );
+        this.writeDependencies( writer );
+
+        /*
+         * The customers with their profit and requested enhancements
+         */
+        int numberOfEnhancements = this.numberOfLevels * this.enhancementsPerLevel;
+        int[] requests = new int[ Math.min( this.requestsPerCustomer, numberOfEnhancements ) ];
+        Random customerRandom = new Random( NRPInstanceGenerator.mix( this.seed, -1L ) );
+        writer.write( this.numberOfCustomers + "\n" );
+        for ( int i = 0; i < this.numberOfCustomers; i++ ) {
+            int profit = 1 + customerRandom.nextInt( this.maximumCustomerProfit );
+            int numberOfRequests = 1 + customerRandom.nextInt( requests.length );
+            NRPInstanceGenerator.sample( customerRandom, numberOfEnhancements, requests,
+                    numberOfRequests );
+
+            writer.write( profit + " " + numberOfRequests );
+            for ( int j = 0; j < numberOfRequests; j++ ) {
+                writer.write( " " + ( requests[ j ] + 1 ) );
+            }
+            writer.write( "\n" );
+        }
+
+        writer.flush();
+    }
+
+    /**
+     * Generate the dependencies of every enhancement above the first level, each
+     * enhancement from its own seed
+     *
+     * @param writer
+     *            where the dependency pairs are written, null to only count them
+     * @return the number of dependencies
+     * @throws IOException
+     */
+    private long writeDependencies( Writer writer ) throws IOException
+    {
+        int wholeDependencies = (int) this.dependencyDensity;
+        double fractionalDependencies = this.dependencyDensity - wholeDependencies;
+        int[] dependencies
+                = new int[ Math.min( wholeDependencies + 1, this.enhancementsPerLevel ) ];
+
+        long numberOfDependencies = 0;
+        for ( int enhancementIndex = this.enhancementsPerLevel;
+                enhancementIndex < this.numberOfLevels * this.enhancementsPerLevel;
+                enhancementIndex++ ) {
+            Random dependencyRandom
+                    = new Random( NRPInstanceGenerator.mix( this.seed, enhancementIndex ) );
+
+            int count = wholeDependencies
+                    + ( dependencyRandom.nextDouble() < fractionalDependencies ? 1 : 0 );
+            count = Math.min( count, dependencies.length );
+            NRPInstanceGenerator.sample( dependencyRandom, this.enhancementsPerLevel,
+                    dependencies, count );
+
+            if ( writer != null ) {
+                int levelBelow = enhancementIndex / this.enhancementsPerLevel - 1;
+
+                for ( int i = 0; i < count; i++ ) {
+                    int dependencyIndex
+                            = levelBelow * this.enhancementsPerLevel + dependencies[ i ];
+                    writer.write( ( dependencyIndex + 1 ) + " " + ( enhancementIndex + 1 ) + "\n" );
+                }
+            }
+            numberOfDependencies += count;
+        }
+
+        return numberOfDependencies;
+    }
+
+    /**
+     * Draw count distinct numbers from 0 to bound - 1 into the first entries of
+     * sample, count is small compared to bound in practice
+     *
+     * @param random
+     * @param bound
+     * @param sample
+     * @param count
+     */
+    private static void sample( Random random, int bound, int[] sample, int count )
+    {
+        for ( int i = 0; i < count; i++ ) {
+            boolean isDuplicate;
+            do {
+                sample[ i ] = random.nextInt( bound );
+
+                isDuplicate = false;
+                for ( int j = 0; j < i && !isDuplicate; j++ ) {
+                    isDuplicate = sample[ j ] == sample[ i ];
+                }
+            } while ( isDuplicate );
+        }
+    }
+
+    /**
+     * @param seed
+     * @param stream
+     * @return an independent seed for every stream, the SplitMix64 finalizer
+     */
+    private static long mix( long seed, long stream )
+    {
+        long key = seed + ( stream + 1 ) * 0x9E3779B97F4A7C15L;
+        key = ( key ^ ( key >>> 30 ) ) * 0xBF58476D1CE4E5B9L;
+        key = ( key ^ ( key >>> 27 ) ) * 0x94D049BB133111EBL;
+
+        return key ^ ( key >>> 31 );
+    }
+
+    private void checkParameters()
+    {
+        if ( this.numberOfLevels < 1 || this.enhancementsPerLevel < 1
+                || this.numberOfCustomers < 0 || this.requestsPerCustomer < 1
+                || this.dependencyDensity < 0 || this.maximumEnhancementCost < 1
+                || this.maximumCustomerProfit < 1 ) {
+            throw new IllegalArgumentException(
+                    "invalid parameters for " + this.getInstanceName() );
+        }
+
+        if ( (long) this.numberOfLevels * this.enhancementsPerLevel > Integer.MAX_VALUE ) {
+            throw new IllegalArgumentException( "too many enhancements" );
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package nrp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Reads the numbers of an instance file one by one. The file is streamed through a
+ * fixed window of windowSize bytes and the numbers are scanned directly from the
+ * bytes, so there is no line splitting, no regex and no boxing, and the memory used
+ * doesn't depend on the size of the file. Numbers are separated by any whitespace,
+ * the line structure of the file is not checked
+ */
+class NRPInstanceParser
+{
+    private static final int windowSize = 1 << 16;
+
+    private final String sourceName;
+    private final ReadableByteChannel channel;
+
+    private final byte[] window = new byte[ windowSize ];
+    private final ByteBuffer windowBuffer = ByteBuffer.wrap( this.window );
+    private int position = 0;
+    private int limit = 0;
+
+    /*
+     * Number of bytes before the window, for the error messages
+     */
+    private long windowOffset = 0;
+
+    /**
+     * @param sourceName
+     *            the name of the file, only used in the messages
+     * @param channel
+     *            the content of the file, not closed by the parser
+     */
+    protected NRPInstanceParser( String sourceName, ReadableByteChannel channel )
+    {
+        this.sourceName = sourceName;
+        this.channel = channel;
+    }
+
+    /**
+     * @return the sourceName
+     */
+    protected String getSourceName()
+    {
+        return sourceName;
+    }
+
+    /**
+     * @return the next integer of the file
+     * @throws IOException
+     *             if the next number is missing or isn't an integer
+     */
+    protected int nextInt() throws IOException
+    {
+        this.skipWhitespace();
+
+        boolean negative = false;
+        if ( this.hasByte() && this.window[ this.position ] == '-' ) {
+            negative = true;
+            this.position++;
+        }
+
+        int digits = 0;
+        long value = 0;
+        while ( this.hasByte() && this.isDigit( this.window[ this.position ] ) ) {
+            value = value * 10 + ( this.window[ this.position++ ] - '0' );
+            digits++;
+
+            if ( value > Integer.MAX_VALUE + 1L ) {
+                throw this.parseException( "integer out of range" );
+            }
+        }
+
+        if ( digits == 0 || !this.isSeparator() ) {
+            throw this.parseException( "integer expected" );
+        }
+
+        value = negative ? -value : value;
+        if ( value > Integer.MAX_VALUE ) {
+            throw this.parseException( "integer out of range" );
+        }
+
+        return (int) value;
+    }
+
+    /**
+     * @param kind
+     *            what is counted, only used in the message
+     * @return the next integer of the file
+     * @throws IOException
+     *             if the next number isn't an integer or is negative
+     */
+    protected int nextCount( String kind ) throws IOException
+    {
+        int count = this.nextInt();
+        if ( count < 0 ) {
+            throw this.parseException( "negative number of " + kind + " " + count );
+        }
+
+        return count;
+    }
+
+    /**
+     * @param numberOfIds
+     * @param kind
+     *            what the id refers to, only used in the message
+     * @return the index of the next id of the file, the id minus 1
+     * @throws IOException
+     *             if the next number isn't an id from 1 to numberOfIds
+     */
+    protected int nextIndex( int numberOfIds, String kind ) throws IOException
+    {
+        int id = this.nextInt();
+        if ( id < 1 || id > numberOfIds ) {
+            throw this.parseException(
+                    kind + " " + id + " out of range 1.." + numberOfIds );
+        }
+
+        return id - 1;
+    }
+
+    /**
+     * The only real number of a file is the cost limit ratio, so its token is
+     * handed to Double.parseDouble
+     *
+     * @return the next real number of the file
+     * @throws IOException
+     *             if the next number is missing or isn't a real number
+     */
+    protected double nextDouble() throws IOException
+    {
+        this.skipWhitespace();
+
+        StringBuilder token = new StringBuilder();
+        while ( !this.isSeparator() ) {
+            token.append( (char) this.window[ this.position++ ] );
+        }
+
+        if ( token.length() == 0 ) {
+            throw this.parseException( "number expected" );
+        }
+
+        try {
+            return Double.parseDouble( token.toString() );
+        } catch ( NumberFormatException e ) {
+            throw this.parseException( e.getMessage() );
+        }
+    }
+
+    private void skipWhitespace() throws IOException
+    {
+        while ( this.hasByte() && this.isSeparator() ) {
+            this.position++;
+        }
+    }
+
+    /**
+     * Read the next part of the file into the window when the window is used up
+     *
+     * @return true if there is a byte at the position, false at the end of the file
+     * @throws IOException
+     */
+    private boolean hasByte() throws IOException
+    {
+        if ( this.position < this.limit ) {
+            return true;
+        }
+
+        this.windowOffset += this.limit;
+        this.position = 0;
+        this.limit = 0;
+        this.windowBuffer.clear();
+
+        int read;
+        do {
+            read = this.channel.read( this.windowBuffer );
+        } while ( read == 0 );
+
+        if ( read > 0 ) {
+            this.limit = read;
+        }
+
+        return read > 0;
+    }
+
+    /**
+     * @return true if the end of the file or a whitespace is at the position
+     * @throws IOException
+     */
+    private boolean isSeparator() throws IOException
+    {
+        if ( !this.hasByte() ) {
+            return true;
+        }
+
+        byte b = this.window[ this.position ];
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    private boolean isDigit( byte b )
+    {
+        return b >= '0' && b <= '9';
+    }
+
+    /**
+     * @param message
+     * @return an exception which tells where the file is malformed
+     */
+    private IOException parseException( String message )
+    {
+        return new IOException( this.sourceName + ": " + message + " at byte "
+                + ( this.windowOffset + this.position ) );
+    }
+}
@@ -0,0 +1,139 @@
+package nrp;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Process-wide registry of the loaded instances. Every instance is loaded once and
+ * the same immutable {@link NRPInstance} is handed to every {@link NRP} object, also
+ * across threads. When several threads ask for an instance which isn't loaded yet,
+ * only the first one loads it and the others wait for it. The registry keeps at
+ * most maximumSize instances and drops the least recently used one, NRP objects
+ * which still use a dropped instance keep it
+ */
+class NRPInstanceRegistry
+{
+    private static final int maximumSize = 16;
+
+    /*
+     * Instance files are registered by their absolute path, the other instances by
+     * their source and id
+     */
+    private static final Map< Object, FutureTask< NRPInstance > > instances
+            = new LinkedHashMap< Object, FutureTask< NRPInstance > >( 16, 0.75f, true ) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry< Object, FutureTask< NRPInstance > > eldest )
+                {
+                    return this.size() > maximumSize;
+                }
+
+            };
+
+    /**
+     * @param instanceSource
+     * @param instanceId
+     * @return the instance, loaded if it isn't in the registry
+     * @throws UncheckedIOException
+     *             if the instance can't be read or is malformed
+     * @throws IllegalArgumentException
+     *             if the source has no instance with the id
+     */
+    protected static NRPInstance get( final NRPInstanceSource instanceSource,
+            final int instanceId )
+    {
+        Path pathToInstanceFile = instanceSource.getInstancePath( instanceId );
+        Object instanceKey = pathToInstanceFile != null
+                ? pathToInstanceFile.toAbsolutePath().normalize()
+                : Arrays.asList( instanceSource, instanceId );
+
+        FutureTask< NRPInstance > loadTask;
+        boolean isLoadingThread = false;
+
+        synchronized ( instances ) {
+            loadTask = instances.get( instanceKey );
+
+            if ( loadTask == null ) {
+                loadTask = new FutureTask<>( new Callable< NRPInstance >() {
+
+                    @Override
+                    public NRPInstance call() throws IOException
+                    {
+                        return NRPInstance.read( instanceSource, instanceId );
+                    }
+
+                } );
+                instances.put( instanceKey, loadTask );
+                isLoadingThread = true;
+            }
+        }
+
+        /*
+         * Load outside of the lock, so other instances can be loaded at the same time
+         */
+        if ( isLoadingThread ) {
+            loadTask.run();
+        }
+
+        try {
+            return NRPInstanceRegistry.getUninterruptibly( loadTask );
+        } catch ( ExecutionException e ) {
+
+            /*
+             * Failed loads aren't kept, the next call tries again
+             */
+            synchronized ( instances ) {
+                if ( instances.get( instanceKey ) == loadTask ) {
+                    instances.remove( instanceKey );
+                }
+            }
+
+            Throwable cause = e.getCause();
+            if ( cause instanceof IOException ) {
+                throw new UncheckedIOException( "instance " + instanceId + " can't be loaded",
+                        (IOException) cause );
+            }
+            if ( cause instanceof Error ) {
+                throw (Error) cause;
+            }
+            throw (RuntimeException) cause;
+        }
+    }
+
+    /**
+     * Wait for the task even when the thread is interrupted, the interrupt is set
+     * again afterwards
+     *
+     * @param loadTask
+     * @return the result of the task
+     * @throws ExecutionException
+     */
+    private static NRPInstance getUninterruptibly( FutureTask< NRPInstance > loadTask )
+            throws ExecutionException
+    {
+        boolean interrupted = false;
+        try {
+            while ( true ) {
+                try {
+                    return loadTask.get();
+                } catch ( InterruptedException e ) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if ( interrupted ) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
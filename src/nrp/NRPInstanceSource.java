@@ -0,0 +1,58 @@
+package nrp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * Where the instances of an {@link NRP} object come from. Instances are numbered
+ * from 1 to getNumberOfInstances() and have a name, their content is in the text
+ * format of the bundled instance files
+ */
+public interface NRPInstanceSource
+{
+    /**
+     * @return the number of instances of this source
+     */
+    int getNumberOfInstances();
+
+    /**
+     * @param instanceId
+     *            from 1 to getNumberOfInstances()
+     * @return the name of the instance
+     */
+    String getInstanceName( int instanceId );
+
+    /**
+     * Instances which are files are read in bulk and can get a snapshot, see
+     * {@link NRPInstanceCache}
+     *
+     * @param instanceId
+     *            from 1 to getNumberOfInstances()
+     * @return the file of the instance, null if the instance isn't a file
+     */
+    Path getInstancePath( int instanceId );
+
+    /**
+     * @param instanceId
+     *            from 1 to getNumberOfInstances()
+     * @return a new stream of the content of the instance
+     * @throws IOException
+     */
+    InputStream openInstance( int instanceId ) throws IOException;
+
+    /**
+     * @param instanceName
+     * @return the id of the first instance with the name, -1 if there is none
+     */
+    default int getInstanceId( String instanceName )
+    {
+        for ( int instanceId = 1; instanceId <= this.getNumberOfInstances(); instanceId++ ) {
+            if ( this.getInstanceName( instanceId ).equals( instanceName ) ) {
+                return instanceId;
+            }
+        }
+
+        return -1;
+    }
+}
@@ -0,0 +1,85 @@
+package nrp;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of ints stored in fixed pages of pageSize ints. Growing never copies
+ * what was already added, only the table of pages, so the rows of a large instance
+ * can be collected without holding an array per row or reallocating the whole list
+ */
+class NRPIntPages
+{
+    private static final int pageShift = 16;
+    private static final int pageSize = 1 << pageShift;
+
+    private int[][] pages = new int[ 0 ][];
+    private long size = 0;
+
+    /**
+     * @param value
+     */
+    protected void add( int value )
+    {
+        int pageIndex = (int) ( this.size >>> pageShift );
+        if ( pageIndex == this.pages.length ) {
+            this.pages = Arrays.copyOf( this.pages, Math.max( 4, this.pages.length * 2 ) );
+        }
+        if ( this.pages[ pageIndex ] == null ) {
+            this.pages[ pageIndex ] = new int[ pageSize ];
+        }
+
+        this.pages[ pageIndex ][ (int) ( this.size & ( pageSize - 1 ) ) ] = value;
+        this.size++;
+    }
+
+    /**
+     * Add the first length values of the array
+     *
+     * @param values
+     * @param length
+     */
+    protected void addAll( int[] values, int length )
+    {
+        for ( int i = 0; i < length; i++ ) {
+            this.add( values[ i ] );
+        }
+    }
+
+    /**
+     * @param index
+     * @return the value at the index
+     */
+    protected int get( long index )
+    {
+        return this.pages[ (int) ( index >>> pageShift ) ][ (int) ( index & ( pageSize - 1 ) ) ];
+    }
+
+    /**
+     * @return the size
+     */
+    protected long size()
+    {
+        return size;
+    }
+
+    /**
+     * @return all values in one array
+     * @throws IllegalStateException
+     *             if there are more values than an array can hold
+     */
+    protected int[] toArray()
+    {
+        if ( this.size > Integer.MAX_VALUE - 8 ) {
+            throw new IllegalStateException( this.size + " values don't fit in an array" );
+        }
+
+        int[] array = new int[ (int) this.size ];
+        for ( int pageIndex = 0; (long) pageIndex << pageShift < this.size; pageIndex++ ) {
+            int start = pageIndex << pageShift;
+            System.arraycopy( this.pages[ pageIndex ], 0, array, start,
+                    Math.min( pageSize, array.length - start ) );
+        }
+
+        return array;
+    }
+}
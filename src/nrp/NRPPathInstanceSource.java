@@ -0,0 +1,75 @@
+package nrp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Instances from an explicit list of files, in the order of the list. The name of
+ * an instance is its file name without the .txt extension
+ */
+public class NRPPathInstanceSource implements NRPInstanceSource
+{
+    private final List< Path > instancePaths;
+
+    /**
+     * @param instancePaths
+     */
+    public NRPPathInstanceSource( Path... instancePaths )
+    {
+        this( Arrays.asList( instancePaths ) );
+    }
+
+    /**
+     * @param instancePaths
+     */
+    public NRPPathInstanceSource( List< Path > instancePaths )
+    {
+        this.instancePaths = new ArrayList<>( instancePaths );
+    }
+
+    /**
+     * @return the files of the instances
+     */
+    protected List< Path > getInstancePaths()
+    {
+        return instancePaths;
+    }
+
+    @Override
+    public int getNumberOfInstances()
+    {
+        return this.getInstancePaths().size();
+    }
+
+    @Override
+    public String getInstanceName( int instanceId )
+    {
+        String fileName = this.getInstancePath( instanceId ).getFileName().toString();
+
+        return fileName.endsWith( ".txt" ) ? fileName.substring( 0, fileName.length() - 4 )
+                : fileName;
+    }
+
+    @Override
+    public Path getInstancePath( int instanceId )
+    {
+        List< Path > instancePaths = this.getInstancePaths();
+        if ( instanceId < 1 || instanceId > instancePaths.size() ) {
+            throw new IllegalArgumentException( "instance " + instanceId + " does not exist, "
+                    + instancePaths.size() + " instances" );
+        }
+
+        return instancePaths.get( instanceId - 1 );
+    }
+
+    @Override
+    public InputStream openInstance( int instanceId ) throws IOException
+    {
+        return Files.newInputStream( this.getInstancePath( instanceId ) );
+    }
+}
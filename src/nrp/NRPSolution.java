@@ -1,312 +1,416 @@
 package nrp;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-
-class NRPSolution
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Base class of the solution representations, the heuristics in {@link NRP} only
+ * work against this class so the representation can be selected per NRP object.
+ * Customers and enhancements are identified by their index in {@link NRPInstance}.
+ * Every solution keeps a fingerprint of its accepted customers, the XOR of a
+ * random 64-bit key per accepted customer, which is updated on every add and remove
+ */
+abstract class NRPSolution
 {
-    private List< Customer > acceptedCustomers = new ArrayList<>();
-    private List< Customer > haveNotBeenAcceptedCustomers = new ArrayList<>();
-    private List< Enhancement > acceptedEnhancements = new ArrayList<>();
-
-    private double totalCost = 0.0;
-    private double totalProfit = 0.0;
+    private long fingerprint = 0L;
 
     /**
      * Empty constructor
      */
-    public NRPSolution()
+    protected NRPSolution()
     {
     }
 
     /**
-     * Basic Constructor
-     * 
-     * @param customersMap
+     * A copy constructor
+     *
+     * @param nrpSolution
      */
-    protected NRPSolution( List< Customer > customersList )
+    protected NRPSolution( NRPSolution nrpSolution )
     {
-        /*
-         * Create the haveNotBeenAcceptedCustomers list
-         */
-        List< Customer > haveNotBeenAcceptedCustomers = new ArrayList<>( customersList );
+        this.fingerprint = nrpSolution.fingerprint;
+    }
 
-        /*
-         * Iterate through haveNotBeenAcceptedCustomers list and fixes their
-         * currentRequirements list
-         */
-        for ( Customer customer : haveNotBeenAcceptedCustomers ) {
-            customer.setCurrentEnhancementsList( customer.getOriginalEnhancementsList() );
+    /**
+     * @return a copy of this solution
+     */
+    protected abstract NRPSolution copy();
+
+    /**
+     * Called when the solution is discarded, a representation whose copies share
+     * their memory gives up its share. The solution can't be used afterwards
+     */
+    protected void release()
+    {
+    }
+
+    /**
+     * Move the solution to the instance a delta was applied to, the remaining
+     * customers stay accepted. The solution isn't repaired, it may be over the new
+     * cost limit
+     *
+     * @param nrpInstance
+     *            the instance the delta was applied to
+     * @param delta
+     * @param customerMap
+     *            the new index of every customer of the current instance, -1 if it
+     *            is removed
+     * @return the moved solution, this solution is left as it is
+     */
+    protected abstract NRPSolution moveTo( NRPInstance nrpInstance, NRPInstanceDelta delta,
+            int[] customerMap );
+
+    /**
+     * @return the nrpInstance of this solution
+     */
+    protected abstract NRPInstance getNrpInstance();
+
+    /**
+     * @return the indices of the customers which have not been accepted
+     */
+    protected abstract int[] getHaveNotBeenAcceptedCustomers();
+
+    /**
+     * @return the indices of the accepted customers
+     */
+    protected abstract int[] getAcceptedCustomers();
+
+    /**
+     * @return a set of the accepted customers which the caller may modify
+     */
+    protected BitSet getAcceptedCustomerSet()
+    {
+        BitSet acceptedCustomerSet = new BitSet( this.getNrpInstance().getNumberOfCustomers() );
+        for ( int customerIndex : this.getAcceptedCustomers() ) {
+            acceptedCustomerSet.set( customerIndex );
         }
 
-        this.haveNotBeenAcceptedCustomers = haveNotBeenAcceptedCustomers;
+        return acceptedCustomerSet;
     }
 
     /**
-     * @param acceptedCustomers
-     * @param customersMap
+     * @return the indices of the accepted enhancements
      */
-    protected NRPSolution( List< Customer > acceptedCustomers, List< Customer > customersList )
+    protected abstract int[] getAcceptedEnhancements();
+
+    /**
+     * @param ordering
+     * @return the accepted customer which comes first in the ordering, -1 if no
+     *         customer is accepted
+     */
+    protected int getFirstAcceptedCustomer( NRPCustomerOrdering ordering )
     {
-        /*
-         * Create the haveNotBeenAcceptedCustomers and acceptedEnhancements list
-         */
-        List< Customer > haveNotBeenAcceptedCustomers = new ArrayList<>( customersList );
-        haveNotBeenAcceptedCustomers.removeAll( acceptedCustomers );
+        int[] customerRanks = this.getNrpInstance().getCustomerRanks( ordering );
 
-        /*
-         * Create the acceptedEnhancements list
-         */
-        List< Enhancement > acceptedEnhancements = new ArrayList<>();
-        for ( Customer customer : acceptedCustomers ) {
-            List< Enhancement > originalEnhancementsList = customer.getOriginalEnhancementsList();
-
-            for ( Enhancement enhancement : originalEnhancementsList ) {
-                if ( !acceptedEnhancements.contains( enhancement ) ) {
-                    acceptedEnhancements.add( enhancement );
-                }
+        int firstAcceptedCustomer = -1;
+        for ( int customerIndex : this.getAcceptedCustomers() ) {
+            if ( firstAcceptedCustomer < 0
+                    || customerRanks[ customerIndex ] < customerRanks[ firstAcceptedCustomer ] ) {
+                firstAcceptedCustomer = customerIndex;
             }
         }
 
-        /*
-         * Iterate through haveNotBeenAcceptedCustomers list and fixes their
-         * currentRequirements list
-         */
-        for ( Customer customer : haveNotBeenAcceptedCustomers ) {
-            List< Enhancement > currentEnhancementsList = customer.getOriginalEnhancementsList();
-            currentEnhancementsList.removeAll( acceptedEnhancements );
+        return firstAcceptedCustomer;
+    }
 
-            customer.setCurrentEnhancementsList( currentEnhancementsList );
+    /**
+     * @param customerIndex
+     * @return true if the customer is accepted, else false
+     */
+    protected boolean isAcceptedCustomer( int customerIndex )
+    {
+        for ( int acceptedCustomer : this.getAcceptedCustomers() ) {
+            if ( acceptedCustomer == customerIndex ) {
+                return true;
+            }
         }
 
-        this.acceptedCustomers = acceptedCustomers;
-        this.acceptedEnhancements = acceptedEnhancements;
-        this.haveNotBeenAcceptedCustomers = haveNotBeenAcceptedCustomers;
-        this.setTotalCost();
-        this.setTotalProfit();
+        return false;
     }
 
     /**
-     * A copy constructor
-     * 
-     * @param acceptedCustomers
-     * @param acceptedEnhancements
-     * @param totalCost
-     * @param totalProfit
+     * @param enhancementIndex
+     * @return true if the enhancement is accepted, else false
      */
-    protected NRPSolution( NRPSolution nrpSolution )
+    protected boolean isAcceptedEnhancement( int enhancementIndex )
     {
-        this.acceptedCustomers = nrpSolution.acceptedCustomers;
-        this.haveNotBeenAcceptedCustomers = nrpSolution.haveNotBeenAcceptedCustomers;
-        this.acceptedEnhancements = nrpSolution.acceptedEnhancements;
-        this.totalCost = nrpSolution.totalCost;
-        this.totalProfit = nrpSolution.totalProfit;
+        for ( int acceptedEnhancement : this.getAcceptedEnhancements() ) {
+            if ( acceptedEnhancement == enhancementIndex ) {
+                return true;
+            }
+        }
+
+        return false;
     }
 
     /**
-     * @return the haveNotBeenAcceptedCustomers
+     * Walk the accepted customers in the ordering one at a time, without building
+     * or sorting a list of them
+     *
+     * @param ordering
+     * @param rank
+     *            the rank to start from
+     * @return the first rank from rank on whose customer is accepted, -1 if there is
+     *         none
      */
-    protected List< Customer > getHaveNotBeenAcceptedCustomers()
+    protected int getNextAcceptedRank( NRPCustomerOrdering ordering, int rank )
     {
-        List< Customer > copyOfHaveNotBeenAcceptedCustomers
-                = new ArrayList<>( this.haveNotBeenAcceptedCustomers );
+        int[] customerOrder = this.getNrpInstance().getCustomerOrder( ordering );
+        for ( int i = Math.max( rank, 0 ); i < customerOrder.length; i++ ) {
+            if ( this.isAcceptedCustomer( customerOrder[ i ] ) ) {
+                return i;
+            }
+        }
 
-        return copyOfHaveNotBeenAcceptedCustomers;
+        return -1;
     }
 
     /**
-     * @return the copy of acceptedCustomers list
+     * Walk the customers which have not been accepted from the last of the ordering
+     * one at a time, without building or sorting a list of them
+     *
+     * @param ordering
+     * @param rank
+     *            the rank to start from
+     * @return the last rank from rank down whose customer has not been accepted, -1
+     *         if there is none
      */
-    protected List< Customer > getAcceptedCustomers()
+    protected int getPreviousRejectedRank( NRPCustomerOrdering ordering, int rank )
     {
-        List< Customer > copyOfAcceptedCustomers = new ArrayList<>( this.acceptedCustomers );
+        int[] customerOrder = this.getNrpInstance().getCustomerOrder( ordering );
+        for ( int i = Math.min( rank, customerOrder.length - 1 ); i >= 0; i-- ) {
+            if ( !this.isAcceptedCustomer( customerOrder[ i ] ) ) {
+                return i;
+            }
+        }
 
-        return copyOfAcceptedCustomers;
+        return -1;
     }
 
     /**
-     * @return the copy of acceptedEnhancements list
+     * @param ordering
+     * @param reversed
+     *            true to start from the last customer of the ordering
+     * @return the indices of the customers which have not been accepted, in the
+     *         ordering
      */
-    protected List< Enhancement > getAcceptedEnhancements()
+    protected int[] getHaveNotBeenAcceptedCustomers( NRPCustomerOrdering ordering,
+            boolean reversed )
     {
-        List< Enhancement > copyOfAcceptedEnhancements
-                = new ArrayList<>( this.acceptedEnhancements );
+        NRPInstance nrpInstance = this.getNrpInstance();
+        int[] customerOrder = nrpInstance.getCustomerOrder( ordering );
+        int[] customerRanks = nrpInstance.getCustomerRanks( ordering );
 
-        return copyOfAcceptedEnhancements;
+        /*
+         * Mark the ranks of the customers and walk them in order, instead of sorting
+         */
+        int[] haveNotBeenAcceptedCustomers = this.getHaveNotBeenAcceptedCustomers();
+        boolean[] haveNotBeenAcceptedRanks = new boolean[ customerOrder.length ];
+        for ( int customerIndex : haveNotBeenAcceptedCustomers ) {
+            haveNotBeenAcceptedRanks[ customerRanks[ customerIndex ] ] = true;
+        }
+
+        int index = 0;
+        for ( int i = 0; i < customerOrder.length; i++ ) {
+            int rank = reversed ? customerOrder.length - 1 - i : i;
+
+            if ( haveNotBeenAcceptedRanks[ rank ] ) {
+                haveNotBeenAcceptedCustomers[ index++ ] = customerOrder[ rank ];
+            }
+        }
+
+        return haveNotBeenAcceptedCustomers;
     }
 
     /**
-     * @return the totalCost
+     * The customers which may be added within the budget. Adding a customer lowers
+     * the budget by at least as much as the marginal cost of any other customer, so
+     * a customer which doesn't fit now never fits after more customers are added,
+     * and a loop which only adds customers can skip the others
+     *
+     * @param ordering
+     * @param reversed
+     *            true to start from the last customer of the ordering
+     * @param budget
+     * @return the customers which have not been accepted, in the ordering, at least
+     *         every one whose marginal cost fits the budget
      */
-    protected double getTotalCost()
+    protected int[] getAffordableCustomers( NRPCustomerOrdering ordering, boolean reversed,
+            double budget )
     {
-        return totalCost;
+        return this.getHaveNotBeenAcceptedCustomers( ordering, reversed );
     }
 
+    /**
+     * @return the totalCost
+     */
+    protected abstract double getTotalCost();
+
     /**
      * @return the totalProfit
      */
-    protected double getTotalProfit()
-    {
-        return totalProfit;
-    }
+    protected abstract double getTotalProfit();
+
+    /**
+     * The extra cost of adding a customer given the enhancements which are already
+     * accepted. The sum stops as soon as it exceeds the budget, so a result above
+     * the budget only tells that the customer does not fit
+     *
+     * @param customerIndex
+     * @param budget
+     * @return the marginal cost of adding the customer
+     */
+    protected abstract double getMarginalCost( int customerIndex, double budget );
 
-    /*
-     * set the totalCost
+    /**
+     * @param customerIndex
+     *            an accepted customer
+     * @return the cost of the enhancements no other accepted customer needs, the
+     *         cost saved by removing the customer
      */
-    private void setTotalCost()
+    protected double getFreedCost( int customerIndex )
     {
-        double totalCost = 0.0;
-        for ( Enhancement enhancement : this.acceptedEnhancements ) {
-            totalCost += enhancement.getCost();
-        }
+        NRPSolution nrpSolution = this.copy();
+        nrpSolution.removeAnAcceptedCustomer( customerIndex );
 
-        this.totalCost = totalCost;
+        return this.getTotalCost() - nrpSolution.getTotalCost();
     }
 
-    /*
-     * set the totalProfit
+    /**
+     * The totalCost after swapping an accepted customer for one which has not been
+     * accepted, without modifying this solution
+     *
+     * @param removedCustomerIndex
+     *            an accepted customer
+     * @param addedCustomerIndex
+     *            a customer which has not been accepted
+     * @return the totalCost after the swap
      */
-    private void setTotalProfit()
+    protected double getSwapCost( int removedCustomerIndex, int addedCustomerIndex )
     {
-        double totalProfit = 0.0;
-        for ( Customer customer : this.acceptedCustomers ) {
-            totalProfit += customer.getProfit();
-        }
+        NRPSolution nrpSolution = this.copy();
+        nrpSolution.removeAnAcceptedCustomer( removedCustomerIndex );
+        nrpSolution.addAnAcceptedCustomer( addedCustomerIndex );
 
-        this.totalProfit = totalProfit;
+        return nrpSolution.getTotalCost();
     }
 
     /**
-     * @param customer
+     * @param customerIndex
      * @param costLimit
      * @return true if the currentTotalCost isn't exceeding the cost limit, else
      *         false
      */
-    protected boolean isSafeAddingACustomer( Customer customer, double costLimit )
+    protected boolean isSafeAddingACustomer( int customerIndex, double costLimit )
     {
-        List< Enhancement > copyOfAcceptedEnhancements
-                = new ArrayList<>( this.acceptedEnhancements );
-        List< Enhancement > customerOriginalEnhancementsList
-                = new ArrayList<>( customer.getOriginalEnhancementsList() );
-
-        for ( Enhancement enhancement : customerOriginalEnhancementsList ) {
-            if ( !copyOfAcceptedEnhancements.contains( enhancement ) ) {
-                copyOfAcceptedEnhancements.add( enhancement );
-            }
-        }
-
-        double currentTotalCost = 0.0;
-        for ( Enhancement enhancement : copyOfAcceptedEnhancements ) {
-            currentTotalCost += enhancement.getCost();
-        }
+        double remainingBudget = costLimit - this.getTotalCost();
 
-        if ( currentTotalCost <= costLimit ) {
-            return true;
-        } else {
-            return false;
-        }
+        return this.getMarginalCost( customerIndex, remainingBudget ) <= remainingBudget;
     }
 
     /**
-     * Add a customer to the acceptedCustomers list
-     * 
-     * @param addedCustomer
+     * Add a customer to the accepted customers
+     *
+     * @param addedCustomerIndex
      */
-    protected void addAnAcceptedCustomer( Customer addedCustomer )
-    {
-        List< Customer > acceptedCustomers = new ArrayList<>( this.acceptedCustomers );
-        List< Customer > haveNotBeenAcceptedCustomers
-                = new ArrayList<>( this.haveNotBeenAcceptedCustomers );
+    protected abstract void addAnAcceptedCustomer( int addedCustomerIndex );
 
-        /*
-         * Update the haveNotBeenAcceptedCustomers and acceptedEnhancements list
-         */
-        acceptedCustomers.add( addedCustomer );
-        haveNotBeenAcceptedCustomers.remove( addedCustomer );
-
-        /*
-         * Update the acceptedEnhancements list
-         */
-        List< Enhancement > acceptedEnhancements = new ArrayList<>();
-        for ( Customer customer : acceptedCustomers ) {
-            List< Enhancement > customerOriginalEnhancementsList
-                    = customer.getOriginalEnhancementsList();
-
-            for ( Enhancement enhancement : customerOriginalEnhancementsList ) {
-                if ( !acceptedEnhancements.contains( enhancement ) ) {
-                    acceptedEnhancements.add( enhancement );
-                }
-            }
+    /**
+     * Add several customers to the accepted customers at once
+     *
+     * @param addedCustomerIndices
+     */
+    protected void addAcceptedCustomers( int[] addedCustomerIndices )
+    {
+        for ( int addedCustomerIndex : addedCustomerIndices ) {
+            this.addAnAcceptedCustomer( addedCustomerIndex );
         }
+    }
 
-        /*
-         * Iterate through haveNotBeenAcceptedCustomers list and fixes their
-         * currentRequirements list
-         */
-        for ( Customer customer : haveNotBeenAcceptedCustomers ) {
-            List< Enhancement > currentEnhancementsList = customer.getOriginalEnhancementsList();
-            currentEnhancementsList.removeAll( acceptedEnhancements );
+    /**
+     * Remove a customer from the accepted customers
+     *
+     * @param removedCustomerIndex
+     */
+    protected abstract void removeAnAcceptedCustomer( int removedCustomerIndex );
 
-            customer.setCurrentEnhancementsList( currentEnhancementsList );
+    /**
+     * Remove several customers from the accepted customers at once
+     *
+     * @param removedCustomerIndices
+     */
+    protected void removeAcceptedCustomers( int[] removedCustomerIndices )
+    {
+        for ( int removedCustomerIndex : removedCustomerIndices ) {
+            this.removeAnAcceptedCustomer( removedCustomerIndex );
         }
+    }
 
-        this.acceptedCustomers = acceptedCustomers;
-        this.haveNotBeenAcceptedCustomers = haveNotBeenAcceptedCustomers;
-        this.acceptedEnhancements = acceptedEnhancements;
-        this.setTotalCost();
-        this.setTotalProfit();
+    /**
+     * @return the fingerprint of the accepted customers, equal sets of accepted
+     *         customers always have equal fingerprints
+     */
+    protected long getFingerprint()
+    {
+        return fingerprint;
     }
 
     /**
-     * Remove a customer from the acceptedCustomers list
-     * 
-     * @param addedCustomer
+     * Flip the customer in the fingerprint, must be called whenever the customer is
+     * added to or removed from the accepted customers
+     *
+     * @param customerIndex
      */
-    protected void removeAnAcceptedCustomer( Customer removedCustomer )
+    protected void toggleFingerprint( int customerIndex )
     {
-        List< Customer > acceptedCustomers = new ArrayList<>( this.acceptedCustomers );
-        List< Customer > haveNotBeenAcceptedCustomers
-                = new ArrayList<>( this.haveNotBeenAcceptedCustomers );
+        this.fingerprint ^= NRPSolution.getFingerprintKey( customerIndex );
+    }
 
-        /*
-         * Update the haveNotBeenAcceptedCustomers and acceptedEnhancements list
-         */
-        haveNotBeenAcceptedCustomers.add( removedCustomer );
-        acceptedCustomers.remove( removedCustomer );
+    /**
+     * @param customerIndex
+     * @return the random 64-bit key of a customer, the SplitMix64 finalizer of its
+     *         id
+     */
+    private static long getFingerprintKey( int customerIndex )
+    {
+        long key = ( customerIndex + 1 ) * 0x9E3779B97F4A7C15L;
+        key = ( key ^ ( key >>> 30 ) ) * 0xBF58476D1CE4E5B9L;
+        key = ( key ^ ( key >>> 27 ) ) * 0x94D049BB133111EBL;
 
-        /*
-         * Update the acceptedEnhancements list
-         */
-        List< Enhancement > acceptedEnhancements = new ArrayList<>();
-        for ( Customer customer : acceptedCustomers ) {
-            List< Enhancement > customerOriginalEnhancementsList
-                    = customer.getOriginalEnhancementsList();
-
-            for ( Enhancement enhancement : customerOriginalEnhancementsList ) {
-                if ( !acceptedEnhancements.contains( enhancement ) ) {
-                    acceptedEnhancements.add( enhancement );
-                }
-            }
+        return key ^ ( key >>> 31 );
+    }
+
+    /**
+     * Compare the fingerprints first, the accepted customers are only compared when
+     * the fingerprints are equal
+     *
+     * @param nrpSolution
+     * @return true if both solutions accept the same customers, else false
+     */
+    protected boolean hasSameAcceptedCustomers( NRPSolution nrpSolution )
+    {
+        if ( this.fingerprint != nrpSolution.fingerprint ) {
+            return false;
         }
 
-        /*
-         * Iterate through haveNotBeenAcceptedCustomers list and fixes their
-         * currentRequirements list
-         */
-        for ( Customer customer : haveNotBeenAcceptedCustomers ) {
-            List< Enhancement > currentEnhancementsList = customer.getOriginalEnhancementsList();
-            currentEnhancementsList.removeAll( acceptedEnhancements );
+        return this.compareAcceptedCustomers( nrpSolution );
+    }
 
-            customer.setCurrentEnhancementsList( currentEnhancementsList );
-        }
+    /**
+     * Full comparison of the accepted customers, only called when the fingerprints
+     * collide
+     *
+     * @param nrpSolution
+     * @return true if both solutions accept the same customers, else false
+     */
+    protected boolean compareAcceptedCustomers( NRPSolution nrpSolution )
+    {
+        int[] acceptedCustomers = this.getAcceptedCustomers();
+        int[] otherAcceptedCustomers = nrpSolution.getAcceptedCustomers();
+        Arrays.sort( acceptedCustomers );
+        Arrays.sort( otherAcceptedCustomers );
 
-        this.acceptedCustomers = acceptedCustomers;
-        this.haveNotBeenAcceptedCustomers = haveNotBeenAcceptedCustomers;
-        this.acceptedEnhancements = acceptedEnhancements;
-        this.setTotalCost();
-        this.setTotalProfit();
+        return Arrays.equals( acceptedCustomers, otherAcceptedCustomers );
     }
 
     @Override
@@ -314,52 +418,35 @@ class NRPSolution
     {
         StringBuilder stringBuilder = new StringBuilder();
 
-        stringBuilder.append( "Total cost: " + this.totalCost + "\n" );
-        stringBuilder.append( "Total profit: " + this.totalProfit + "\n" );
+        stringBuilder.append( "Total cost: " + this.getTotalCost() + "\n" );
+        stringBuilder.append( "Total profit: " + this.getTotalProfit() + "\n" );
 
         stringBuilder.append( "Accepted customers: " );
-        Iterator< Customer > acceptedCustomersIterator = this.acceptedCustomers.iterator();
-        if ( acceptedCustomersIterator.hasNext() ) {
-            Customer customer = acceptedCustomersIterator.next();
-
-            stringBuilder.append( customer.getId() );
-
-            while ( acceptedCustomersIterator.hasNext() ) {
-                customer = acceptedCustomersIterator.next();
-
-                stringBuilder.append( ", " + customer.getId() );
-            }
-        }
+        NRPSolution.appendIds( stringBuilder, this.getAcceptedCustomers() );
 
         stringBuilder.append( "\nHave not been accepted customers: " );
-        Iterator< Customer > haveNotBeenAcceptedCustomersIterator
-                = this.haveNotBeenAcceptedCustomers.iterator();
-        if ( haveNotBeenAcceptedCustomersIterator.hasNext() ) {
-            Customer customer = haveNotBeenAcceptedCustomersIterator.next();
-
-            stringBuilder.append( customer.getId() );
-
-            while ( haveNotBeenAcceptedCustomersIterator.hasNext() ) {
-                customer = haveNotBeenAcceptedCustomersIterator.next();
-
-                stringBuilder.append( ", " + customer.getId() );
-            }
-        }
+        NRPSolution.appendIds( stringBuilder, this.getHaveNotBeenAcceptedCustomers() );
 
         stringBuilder.append( "\nEnhancements: " );
-        Iterator< Enhancement > acceptedEnhancementsIterator = this.acceptedEnhancements.iterator();
-        if ( acceptedEnhancementsIterator.hasNext() ) {
-            Enhancement enhancement = acceptedEnhancementsIterator.next();
+        NRPSolution.appendIds( stringBuilder, this.getAcceptedEnhancements() );
 
-            stringBuilder.append( enhancement.getId() );
-
-            while ( acceptedEnhancementsIterator.hasNext() ) {
-                enhancement = acceptedEnhancementsIterator.next();
+        return stringBuilder.toString();
+    }
 
-                stringBuilder.append( ", " + enhancement.getId() );
+    /**
+     * Append the ids (index + 1) separated by commas
+     *
+     * @param stringBuilder
+     * @param indices
+     */
+    private static void appendIds( StringBuilder stringBuilder, int[] indices )
+    {
+        for ( int i = 0; i < indices.length; i++ ) {
+            if ( i > 0 ) {
+                stringBuilder.append( ", " );
             }
-        }
 
-        return stringBuilder.toString();
+            stringBuilder.append( indices[ i ] + 1 );
+        }
     }
 }
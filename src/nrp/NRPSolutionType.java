@@ -0,0 +1,19 @@
+package nrp;
+
+/**
+ * The solution representations an {@link NRP} object can work with
+ */
+public enum NRPSolutionType
+{
+    /**
+     * The original representation, customers and enhancements are kept in lists
+     * that are rebuilt on every move
+     */
+    LIST,
+
+    /**
+     * Customers and enhancements are kept in bitsets indexed by id, the total cost
+     * and total profit are updated by delta on every move
+     */
+    BITSET
+}
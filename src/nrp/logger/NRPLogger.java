@@ -217,6 +217,11 @@ public class NRPLogger
         int deleteHighestCostAddLowestCostCounter = 0;
         int deleteLowestProfitAddHighestProfitCounter = 0;
         int deleteLowestProfitCostRatioAddHighestProfitCostRatioCounter = 0;
+        int swapLocalSearchCounter = 0;
+        int addDropLocalSearchCounter = 0;
+        int uniformCrossoverCounter = 0;
+        int profitCostRatioCrossoverCounter = 0;
+        int ruinAndRecreateCounter = 0;
 
         try {
 
@@ -293,6 +298,21 @@ public class NRPLogger
                     case 3:
                         deleteLowestProfitCostRatioAddHighestProfitCostRatioCounter += 1;
                         break;
+                    case 4:
+                        swapLocalSearchCounter += 1;
+                        break;
+                    case 5:
+                        addDropLocalSearchCounter += 1;
+                        break;
+                    case 6:
+                        uniformCrossoverCounter += 1;
+                        break;
+                    case 7:
+                        profitCostRatioCrossoverCounter += 1;
+                        break;
+                    case 8:
+                        ruinAndRecreateCounter += 1;
+                        break;
                     default:
                         System.err.println( "heuristic does not exist" );
                         System.exit( -1 );
@@ -369,6 +389,21 @@ public class NRPLogger
         LOGGER.info( "Heuristic #4 - Called: "
                 + deleteLowestProfitCostRatioAddHighestProfitCostRatioCounter + " times" );
 
+        // Heuristic five
+        LOGGER.info( "Heuristic #5 - Called: " + swapLocalSearchCounter + " times" );
+
+        // Heuristic six
+        LOGGER.info( "Heuristic #6 - Called: " + addDropLocalSearchCounter + " times" );
+
+        // Heuristic seven
+        LOGGER.info( "Heuristic #7 - Called: " + uniformCrossoverCounter + " times" );
+
+        // Heuristic eight
+        LOGGER.info( "Heuristic #8 - Called: " + profitCostRatioCrossoverCounter + " times" );
+
+        // Heuristic nine
+        LOGGER.info( "Heuristic #9 - Called: " + ruinAndRecreateCounter + " times" );
+
         // Finishing Line
         LOGGER.info(
                 "\n--------------------------------------------------------------------------------------------------------\n" );
@@ -0,0 +1,212 @@
+package nrp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * The requirement closures and dependency cycles of parsed instances against a
+ * plain depth first search over the dependencies
+ */
+public class NRPClosureStageTest
+{
+    @Test
+    public void cycleAndSelfDependency() throws IOException
+    {
+        /*
+         * 2 and 3 depend on each other, 4 depends on itself
+         */
+        NRPInstance nrpInstance = NRPTestInstances.parse(
+                "0.5\n1\n4\n1 2 3 4\n4\n1 2\n2 3\n3 2\n4 4\n2\n5 1 3\n7 1 4\n" );
+
+        assertArrayEquals( new int[] { 0, 1, 2 }, NRPClosureStageTest.getRow( nrpInstance, 0 ) );
+        assertArrayEquals( new int[] { 3 }, NRPClosureStageTest.getRow( nrpInstance, 1 ) );
+        assertEquals( 2, nrpInstance.getDependencyCycles().size() );
+        assertArrayEquals( new int[] { 1, 2 }, nrpInstance.getDependencyCycles().get( 0 ) );
+        assertArrayEquals( new int[] { 3 }, nrpInstance.getDependencyCycles().get( 1 ) );
+    }
+
+    /**
+     * A chain deeper than the closures which are kept
+     */
+    @Test
+    public void longChain() throws IOException
+    {
+        int numberOfEnhancements = 3000;
+        StringBuilder text = new StringBuilder( "0.5\n1\n" + numberOfEnhancements + "\n" );
+        for ( int i = 0; i < numberOfEnhancements; i++ ) {
+            text.append( "1 " );
+        }
+        text.append( "\n" + ( numberOfEnhancements - 1 ) + "\n" );
+        for ( int i = 1; i < numberOfEnhancements; i++ ) {
+            text.append( i + " " + ( i + 1 ) + "\n" );
+        }
+        text.append( "3\n1 1 " + numberOfEnhancements + "\n1 1 1500\n1 1 1\n" );
+
+        NRPClosureStageTest.checkClosures( text.toString() );
+    }
+
+    @Test
+    public void randomInstances() throws IOException
+    {
+        for ( long seed = 0; seed < 20; seed++ ) {
+            NRPClosureStageTest.checkClosures( NRPClosureStageTest.getRandomInstance( seed ) );
+        }
+    }
+
+    /**
+     * Parse the instance and compare every customer and the cycles with the search
+     */
+    private static void checkClosures( String text ) throws IOException
+    {
+        NRPInstance nrpInstance = NRPTestInstances.parse( text );
+
+        /*
+         * Read the requests and the dependencies back from the text
+         */
+        String[] tokens = text.trim().split( "\\s+" );
+        int position = 1;
+        int numberOfLevels = Integer.parseInt( tokens[ position++ ] );
+        int numberOfEnhancements = 0;
+        for ( int level = 0; level < numberOfLevels; level++ ) {
+            int numberOfEnhancementsInLevel = Integer.parseInt( tokens[ position++ ] );
+            numberOfEnhancements += numberOfEnhancementsInLevel;
+            position += numberOfEnhancementsInLevel;
+        }
+
+        List< List< Integer > > dependencies = new ArrayList<>();
+        for ( int i = 0; i < numberOfEnhancements; i++ ) {
+            dependencies.add( new ArrayList< Integer >() );
+        }
+        int numberOfDependencies = Integer.parseInt( tokens[ position++ ] );
+        for ( int i = 0; i < numberOfDependencies; i++ ) {
+            int dependency = Integer.parseInt( tokens[ position++ ] ) - 1;
+            int dependent = Integer.parseInt( tokens[ position++ ] ) - 1;
+            dependencies.get( dependent ).add( dependency );
+        }
+
+        int numberOfCustomers = Integer.parseInt( tokens[ position++ ] );
+        assertEquals( numberOfCustomers, nrpInstance.getNumberOfCustomers() );
+        for ( int customerIndex = 0; customerIndex < numberOfCustomers; customerIndex++ ) {
+            position++;
+            int numberOfRequests = Integer.parseInt( tokens[ position++ ] );
+            int[] requests = new int[ numberOfRequests ];
+            for ( int i = 0; i < numberOfRequests; i++ ) {
+                requests[ i ] = Integer.parseInt( tokens[ position++ ] ) - 1;
+            }
+
+            assertArrayEquals( "customer " + customerIndex,
+                    NRPClosureStageTest.search( dependencies, requests ).stream().toArray(),
+                    NRPClosureStageTest.getRow( nrpInstance, customerIndex ) );
+        }
+
+        /*
+         * An enhancement is in a cycle when it can be reached from its own
+         * dependencies
+         */
+        BitSet cycleEnhancements = new BitSet();
+        for ( int enhancementIndex = 0; enhancementIndex < numberOfEnhancements;
+                enhancementIndex++ ) {
+            int[] directDependencies = new int[ dependencies.get( enhancementIndex ).size() ];
+            for ( int i = 0; i < directDependencies.length; i++ ) {
+                directDependencies[ i ] = dependencies.get( enhancementIndex ).get( i );
+            }
+            if ( NRPClosureStageTest.search( dependencies, directDependencies )
+                    .get( enhancementIndex ) ) {
+                cycleEnhancements.set( enhancementIndex );
+            }
+        }
+
+        BitSet reportedEnhancements = new BitSet();
+        for ( int[] dependencyCycle : nrpInstance.getDependencyCycles() ) {
+            BitSet closure = NRPClosureStageTest.search( dependencies,
+                    new int[] { dependencyCycle[ 0 ] } );
+            for ( int enhancementIndex : dependencyCycle ) {
+                assertTrue( closure.get( enhancementIndex ) );
+                reportedEnhancements.set( enhancementIndex );
+            }
+        }
+        assertEquals( cycleEnhancements, reportedEnhancements );
+    }
+
+    /**
+     * @return the enhancements reachable from the start enhancements, including them
+     */
+    private static BitSet search( List< List< Integer > > dependencies, int[] start )
+    {
+        BitSet visited = new BitSet();
+        Deque< Integer > stack = new ArrayDeque<>();
+        for ( int enhancementIndex : start ) {
+            stack.push( enhancementIndex );
+        }
+
+        while ( !stack.isEmpty() ) {
+            int enhancementIndex = stack.pop();
+            if ( !visited.get( enhancementIndex ) ) {
+                visited.set( enhancementIndex );
+                for ( int dependency : dependencies.get( enhancementIndex ) ) {
+                    stack.push( dependency );
+                }
+            }
+        }
+
+        return visited;
+    }
+
+    private static int[] getRow( NRPInstance nrpInstance, int customerIndex )
+    {
+        int[] requirementOffsets = nrpInstance.getRequirementOffsets();
+
+        return Arrays.copyOfRange( nrpInstance.getRequirementIndices(),
+                requirementOffsets[ customerIndex ], requirementOffsets[ customerIndex + 1 ] );
+    }
+
+    /**
+     * @return an instance with random dependencies, some of them backwards so there
+     *         are cycles, and duplicate requests
+     */
+    private static String getRandomInstance( long seed )
+    {
+        Random random = new Random( seed );
+        int numberOfEnhancements = 10 + random.nextInt( 80 );
+        int numberOfCustomers = 1 + random.nextInt( 40 );
+
+        StringBuilder text = new StringBuilder( "0.5\n1\n" + numberOfEnhancements + "\n" );
+        for ( int i = 0; i < numberOfEnhancements; i++ ) {
+            text.append( ( 1 + random.nextInt( 9 ) ) + " " );
+        }
+
+        int numberOfDependencies = random.nextInt( 2 * numberOfEnhancements );
+        text.append( "\n" + numberOfDependencies + "\n" );
+        for ( int i = 0; i < numberOfDependencies; i++ ) {
+            int dependency = random.nextInt( numberOfEnhancements );
+            int dependent = random.nextInt( 10 ) == 0
+                    ? random.nextInt( numberOfEnhancements )
+                    : dependency + random.nextInt( numberOfEnhancements - dependency );
+            text.append( ( dependency + 1 ) + " " + ( dependent + 1 ) + "\n" );
+        }
+
+        text.append( numberOfCustomers + "\n" );
+        for ( int i = 0; i < numberOfCustomers; i++ ) {
+            int numberOfRequests = 1 + random.nextInt( 4 );
+            text.append( ( 1 + random.nextInt( 50 ) ) + " " + numberOfRequests );
+            for ( int j = 0; j < numberOfRequests; j++ ) {
+                text.append( " " + ( 1 + random.nextInt( numberOfEnhancements ) ) );
+            }
+            text.append( "\n" );
+        }
+
+        return text.toString();
+    }
+}
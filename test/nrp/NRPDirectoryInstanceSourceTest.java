@@ -0,0 +1,63 @@
+package nrp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * The instances found by scanning a directory
+ */
+public class NRPDirectoryInstanceSourceTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void bundledInstancesKeepTheirIds()
+    {
+        NRPInstanceSource instanceSource = NRPDirectoryInstanceSource.getBundledInstances();
+
+        assertEquals( 15, instanceSource.getNumberOfInstances() );
+        assertEquals( "nrp1-0.3", instanceSource.getInstanceName( 1 ) );
+        assertEquals( "nrp5-0.7", instanceSource.getInstanceName( 15 ) );
+    }
+
+    @Test
+    public void onlyTextFilesAreInstances() throws IOException
+    {
+        Path instanceDirectory = this.temporaryFolder.getRoot().toPath();
+        Files.write( instanceDirectory.resolve( "b.txt" ), new byte[ 0 ] );
+        Files.write( instanceDirectory.resolve( "a.txt" ), new byte[ 0 ] );
+        Files.write( instanceDirectory.resolve( "a.txt.snapshot" ), new byte[ 0 ] );
+        Files.createDirectory( instanceDirectory.resolve( "c.txt" ) );
+
+        NRPInstanceSource instanceSource = new NRPDirectoryInstanceSource( instanceDirectory );
+
+        assertEquals( 2, instanceSource.getNumberOfInstances() );
+        assertEquals( "a", instanceSource.getInstanceName( 1 ) );
+        assertEquals( "b", instanceSource.getInstanceName( 2 ) );
+    }
+
+    @Test
+    public void missingDirectoryIsAnError()
+    {
+        NRPInstanceSource instanceSource = new NRPDirectoryInstanceSource(
+                this.temporaryFolder.getRoot().toPath().resolve( "missing" ) );
+
+        try {
+            instanceSource.getNumberOfInstances();
+            fail( "a missing directory has no instances" );
+        } catch ( UncheckedIOException e ) {
+            assertTrue( e.getMessage(), e.getMessage().contains( "missing" ) );
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package nrp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import AbstractClasses.ProblemDomain.HeuristicType;
+
+/**
+ * The heuristics of {@link NRP} on both solution representations. Heuristic 0 picks
+ * with an unseeded Random, so it is the only one left out of the comparison
+ */
+public class NRPHeuristicTest
+{
+    private static final long seed = 1234L;
+    private static final int numberOfCalls = 5;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void representationsAgreeOnBundledInstances()
+    {
+        for ( int instanceId : new int[] { 1, 2 } ) {
+            NRP listNrp = new NRP( seed, NRPSolutionType.LIST );
+            NRP bitSetNrp = new NRP( seed, NRPSolutionType.BITSET );
+            this.checkRepresentations( listNrp, bitSetNrp, instanceId );
+        }
+    }
+
+    @Test
+    public void representationsAgreeOnGeneratedInstance() throws IOException
+    {
+        NRP listNrp = new NRP( seed, NRPSolutionType.LIST );
+        NRP bitSetNrp = new NRP( seed, NRPSolutionType.BITSET );
+        for ( NRP nrp : new NRP[] { listNrp, bitSetNrp } ) {
+            nrp.setInstanceSource( new NRPGeneratedInstanceSource(
+                    this.temporaryFolder.getRoot().toPath(),
+                    NRPTestInstances.getSmallGenerator( 11L ) ) );
+        }
+
+        this.checkRepresentations( listNrp, bitSetNrp, 1 );
+    }
+
+    @Test
+    public void localSearchesNeverWorsen()
+    {
+        for ( NRPSolutionType solutionType : NRPSolutionType.values() ) {
+            int[] instanceIds = solutionType == NRPSolutionType.LIST
+                    ? new int[] { 1, 2 }
+                    : new int[] { 1, 4, 7 };
+
+            for ( int instanceId : instanceIds ) {
+                NRP nrp = new NRP( seed, solutionType );
+                nrp.loadInstance( instanceId );
+                nrp.setMemorySize( 2 );
+
+                double costLimit = NRPTestInstances.getBundled( instanceId ).getCostLimit();
+                for ( int heuristicId : nrp.getHeuristicsOfType( HeuristicType.LOCAL_SEARCH ) ) {
+                    for ( double depthOfSearch : new double[] { 0.0, 0.5, 1.0 } ) {
+                        nrp.setDepthOfSearch( depthOfSearch );
+
+                        /*
+                         * Start from a perturbed solution, so there is something to
+                         * improve
+                         */
+                        nrp.initialiseSolution( 0 );
+                        nrp.applyHeuristic( 1, 0, 0 );
+                        nrp.applyHeuristic( 3, 0, 0 );
+
+                        double value = nrp.getFunctionValue( 0 );
+                        nrp.applyHeuristic( heuristicId, 0, 1 );
+
+                        assertTrue( nrp.getFunctionValue( 1 ) <= value );
+                        assertTrue( NRPTestInstances.getTotalCost(
+                                NRPTestInstances.getBundled( instanceId ),
+                                nrp.getSolutionCustomerIds( 1 ) ) <= costLimit );
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Both NRP objects start from the same solutions, seeded through loadSolution,
+     * and have to reach the same solutions after every call
+     */
+    private void checkRepresentations( NRP listNrp, NRP bitSetNrp, int instanceId )
+    {
+        for ( NRP nrp : new NRP[] { listNrp, bitSetNrp } ) {
+            nrp.loadInstance( instanceId );
+            nrp.setMemorySize( 3 );
+            nrp.setDepthOfSearch( 0.3 );
+            nrp.setIntensityOfMutation( 0.3 );
+        }
+
+        bitSetNrp.initialiseSolution( 0 );
+        bitSetNrp.initialiseSolution( 1 );
+        listNrp.loadSolution( 0, bitSetNrp.getSolutionCustomerIds( 0 ) );
+        listNrp.loadSolution( 1, bitSetNrp.getSolutionCustomerIds( 1 ) );
+
+        for ( int heuristicId = 1; heuristicId < bitSetNrp.getNumberOfHeuristics();
+                heuristicId++ ) {
+            for ( int call = 0; call < numberOfCalls; call++ ) {
+                listNrp.applyHeuristic( heuristicId, 0, 1, 2 );
+                bitSetNrp.applyHeuristic( heuristicId, 0, 1, 2 );
+
+                assertArrayEquals( "heuristic " + heuristicId + ", call " + call,
+                        bitSetNrp.getSolutionCustomerIds( 2 ),
+                        listNrp.getSolutionCustomerIds( 2 ) );
+
+                listNrp.copySolution( 2, call % 2 );
+                bitSetNrp.copySolution( 2, call % 2 );
+            }
+        }
+    }
+}
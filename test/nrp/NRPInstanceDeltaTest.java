@@ -0,0 +1,207 @@
+package nrp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Solutions moved through a delta against solutions built from scratch on the
+ * patched instance with the same customers. The moved totals are updated, not
+ * summed again, so the doubles are compared with a tolerance
+ */
+public class NRPInstanceDeltaTest
+{
+    private static final int numberOfDeltas = 6;
+    private static final double tolerance = 1e-6;
+
+    @Test
+    public void movedSolutionsMatchSolutionsFromScratch() throws IOException
+    {
+        NRPInstance[] nrpInstances = new NRPInstance[] { NRPTestInstances.getBundled( 4 ),
+                NRPTestInstances.generate( 3L ) };
+
+        for ( NRPSolutionType solutionType : NRPSolutionType.values() ) {
+            for ( NRPInstance nrpInstance : nrpInstances ) {
+                Random random = new Random( nrpInstance.getNumberOfCustomers() );
+                NRPSolution nrpSolution = NRPInstanceDeltaTest.createSolution( solutionType,
+                        nrpInstance );
+                for ( int i = 0; i < nrpInstance.getNumberOfCustomers() / 4; i++ ) {
+                    nrpSolution.addAnAcceptedCustomer(
+                            random.nextInt( nrpInstance.getNumberOfCustomers() ) );
+                }
+
+                /*
+                 * Every delta is applied to the instance and the solution the last one
+                 * left, so the updates pile up
+                 */
+                for ( int i = 0; i < numberOfDeltas; i++ ) {
+                    NRPInstanceDelta delta = NRPInstanceDeltaTest.createDelta( nrpInstance,
+                            nrpSolution, random, i % 2 == 1 );
+                    int[] customerMap = delta.getCustomerMap( nrpInstance.getNumberOfCustomers() );
+                    NRPInstance patchedInstance = nrpInstance.apply( delta );
+                    double totalCost = nrpSolution.getTotalCost();
+
+                    NRPSolution movedSolution = nrpSolution.moveTo( patchedInstance, delta,
+                            customerMap );
+
+                    NRPSolution expectedSolution = NRPInstanceDeltaTest.createSolution(
+                            NRPSolutionType.LIST, patchedInstance );
+                    for ( int customerIndex : nrpSolution.getAcceptedCustomers() ) {
+                        if ( customerMap[ customerIndex ] >= 0 ) {
+                            expectedSolution.addAnAcceptedCustomer( customerMap[ customerIndex ] );
+                        }
+                    }
+
+                    assertEquals( totalCost, nrpSolution.getTotalCost(), 0.0 );
+                    NRPInstanceDeltaTest.assertSameSolution( patchedInstance, expectedSolution,
+                            movedSolution );
+
+                    nrpInstance = patchedInstance;
+                    nrpSolution = movedSolution;
+                }
+            }
+        }
+    }
+
+    /**
+     * The solutions in memory follow the delta and stay within the new cost limit
+     */
+    @Test
+    public void appliedDeltaMovesSolutionsInMemory()
+    {
+        for ( NRPSolutionType solutionType : NRPSolutionType.values() ) {
+            NRP nrp = new NRP( 42L, solutionType );
+            nrp.loadInstance( 1 );
+            nrp.setMemorySize( 2 );
+            nrp.initialiseSolution( 0 );
+            nrp.initialiseSolution( 1 );
+
+            NRPInstance nrpInstance = NRPTestInstances.getBundled( 1 );
+            int[] customerIds = nrp.getSolutionCustomerIds( 0 );
+            NRPInstanceDelta delta = new NRPInstanceDelta();
+            delta.removeCustomer( customerIds[ 0 ] );
+            delta.setCustomerProfit( customerIds[ 1 ], 1.0 );
+            delta.setEnhancementCost( 1, nrpInstance.getEnhancementCosts()[ 0 ] * 2 );
+            delta.addCustomer( 10.0, 1, 2 );
+            nrp.applyInstanceDelta( delta );
+
+            NRPInstance patchedInstance = nrpInstance.apply( delta );
+            int[] movedIds = nrp.getSolutionCustomerIds( 0 );
+            for ( int customerId : movedIds ) {
+                assertTrue( customerId <= patchedInstance.getNumberOfCustomers() );
+            }
+            assertTrue( NRPTestInstances.getTotalCost( patchedInstance, movedIds )
+                    <= patchedInstance.getCostLimit() );
+
+            NRPSolution expectedSolution = new ListNRPSolution( patchedInstance );
+            for ( int customerId : movedIds ) {
+                expectedSolution.addAnAcceptedCustomer( customerId - 1 );
+            }
+            assertEquals( -expectedSolution.getTotalProfit(), nrp.getFunctionValue( 0 ),
+                    tolerance );
+        }
+    }
+
+    /**
+     * @param changesCustomers
+     *            whether the delta also removes and adds customers
+     * @return a delta which changes the costs of some accepted and some other
+     *         enhancements and the profits of some customers
+     */
+    private static NRPInstanceDelta createDelta( NRPInstance nrpInstance,
+            NRPSolution nrpSolution, Random random, boolean changesCustomers )
+    {
+        NRPInstanceDelta delta = new NRPInstanceDelta();
+        int numberOfEnhancements = nrpInstance.getEnhancementCosts().length;
+        int numberOfCustomers = nrpInstance.getNumberOfCustomers();
+
+        int[] acceptedEnhancements = nrpSolution.getAcceptedEnhancements();
+        for ( int i = 0; i < 10; i++ ) {
+            int enhancementIndex = i % 2 == 0 && acceptedEnhancements.length > 0
+                    ? acceptedEnhancements[ random.nextInt( acceptedEnhancements.length ) ]
+                    : random.nextInt( numberOfEnhancements );
+            delta.setEnhancementCost( enhancementIndex + 1, 0.5 + random.nextInt( 20 ) );
+        }
+
+        for ( int i = 0; i < 10; i++ ) {
+            delta.setCustomerProfit( random.nextInt( numberOfCustomers ) + 1,
+                    1 + random.nextInt( 50 ) );
+        }
+
+        if ( changesCustomers ) {
+            int[] acceptedCustomers = nrpSolution.getAcceptedCustomers();
+            for ( int i = 0; i < 5; i++ ) {
+                delta.removeCustomer(
+                        acceptedCustomers[ random.nextInt( acceptedCustomers.length ) ] + 1 );
+                delta.removeCustomer( random.nextInt( numberOfCustomers ) + 1 );
+            }
+            for ( int i = 0; i < 5; i++ ) {
+                delta.addCustomer( 1 + random.nextInt( 50 ),
+                        random.nextInt( numberOfEnhancements ) + 1,
+                        random.nextInt( numberOfEnhancements ) + 1 );
+            }
+            delta.setCostLimitRatio( 0.3 + 0.4 * random.nextDouble() );
+        }
+
+        return delta;
+    }
+
+    private static NRPSolution createSolution( NRPSolutionType solutionType,
+            NRPInstance nrpInstance )
+    {
+        return solutionType == NRPSolutionType.LIST
+                ? new ListNRPSolution( nrpInstance )
+                : new BitSetNRPSolution( nrpInstance );
+    }
+
+    private static void assertSameSolution( NRPInstance nrpInstance, NRPSolution expected,
+            NRPSolution actual )
+    {
+        assertEquals( expected.getTotalCost(), actual.getTotalCost(), tolerance );
+        assertEquals( expected.getTotalProfit(), actual.getTotalProfit(), tolerance );
+        assertEquals( expected.getFingerprint(), actual.getFingerprint() );
+        assertEquals( expected.getAcceptedCustomerSet(), actual.getAcceptedCustomerSet() );
+        assertArrayEquals( NRPInstanceDeltaTest.sorted( expected.getAcceptedEnhancements() ),
+                NRPInstanceDeltaTest.sorted( actual.getAcceptedEnhancements() ) );
+
+        for ( int customerIndex = 0; customerIndex < nrpInstance.getNumberOfCustomers();
+                customerIndex++ ) {
+            assertEquals( "customer " + customerIndex,
+                    expected.getMarginalCost( customerIndex, Double.MAX_VALUE ),
+                    actual.getMarginalCost( customerIndex, Double.MAX_VALUE ), tolerance );
+        }
+
+        double budget = nrpInstance.getCostLimit() - expected.getTotalCost();
+        for ( NRPCustomerOrdering ordering : NRPCustomerOrdering.values() ) {
+            assertEquals( expected.getFirstAcceptedCustomer( ordering ),
+                    actual.getFirstAcceptedCustomer( ordering ) );
+            assertArrayEquals( expected.getHaveNotBeenAcceptedCustomers( ordering, false ),
+                    actual.getHaveNotBeenAcceptedCustomers( ordering, false ) );
+
+            if ( budget >= 0.0 ) {
+                int[] affordableCustomers = NRPInstanceDeltaTest.sorted(
+                        actual.getAffordableCustomers( ordering, true, budget ) );
+                for ( int customerIndex : expected.getHaveNotBeenAcceptedCustomers() ) {
+                    if ( expected.getMarginalCost( customerIndex, budget ) <= budget ) {
+                        assertTrue( Arrays.binarySearch( affordableCustomers,
+                                customerIndex ) >= 0 );
+                    }
+                }
+            }
+        }
+    }
+
+    private static int[] sorted( int[] values )
+    {
+        int[] sortedValues = values.clone();
+        Arrays.sort( sortedValues );
+
+        return sortedValues;
+    }
+}
@@ -0,0 +1,71 @@
+package nrp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+/**
+ * Malformed instance files are rejected with an IOException which names the file
+ * and the byte where the problem is
+ */
+public class NRPInstanceParserTest
+{
+    @Test
+    public void wellFormedInstance() throws IOException
+    {
+        NRPInstance nrpInstance
+                = NRPTestInstances.parse( "0.5\n1\n3\n1 2 3\n1\n1 2\n2\n5 1 2\n7 1 3\n" );
+
+        assertEquals( 2, nrpInstance.getNumberOfCustomers() );
+        assertEquals( 3, nrpInstance.getNumberOfEnhancements() );
+    }
+
+    @Test
+    public void requestOutOfRange()
+    {
+        NRPInstanceParserTest.assertRejected( "0.5\n1\n3\n1 2 3\n0\n2\n5 1 2\n7 1 4\n",
+                "enhancement 4 out of range 1..3" );
+        NRPInstanceParserTest.assertRejected( "0.5\n1\n3\n1 2 3\n0\n1\n5 1 0\n",
+                "enhancement 0 out of range 1..3" );
+    }
+
+    @Test
+    public void dependencyOutOfRange()
+    {
+        NRPInstanceParserTest.assertRejected( "0.5\n1\n3\n1 2 3\n1\n1 9\n1\n5 1 2\n",
+                "enhancement 9 out of range 1..3" );
+        NRPInstanceParserTest.assertRejected( "0.5\n1\n3\n1 2 3\n1\n-1 2\n1\n5 1 2\n",
+                "enhancement -1 out of range 1..3" );
+    }
+
+    @Test
+    public void negativeCount()
+    {
+        NRPInstanceParserTest.assertRejected( "0.5\n1\n3\n1 2 3\n0\n-2\n",
+                "negative number of customers -2" );
+        NRPInstanceParserTest.assertRejected( "0.5\n1\n3\n1 2 3\n0\n1\n5 -1 2\n",
+                "negative number of requests -1" );
+    }
+
+    @Test
+    public void truncatedInstance()
+    {
+        NRPInstanceParserTest.assertRejected( "0.5\n1\n3\n1 2 3\n0\n2\n5 1 2\n7 2",
+                "integer expected" );
+    }
+
+    private static void assertRejected( String text, String message )
+    {
+        try {
+            NRPTestInstances.parse( text );
+            fail( "instance was parsed" );
+        } catch ( IOException e ) {
+            assertTrue( e.getMessage(),
+                    e.getMessage().startsWith( "test: " + message + " at byte " ) );
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package nrp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Solutions exported with getSolutionCustomerIds and loaded back with loadSolution,
+ * on the same instance and after the cost limit changed
+ */
+public class NRPLoadSolutionTest
+{
+    private static final long seed = 42L;
+
+    @Test
+    public void exportedSolutionLoadsBackExactly()
+    {
+        for ( NRPSolutionType solutionType : NRPSolutionType.values() ) {
+            for ( int instanceId : new int[] { 1, 3, 4 } ) {
+                NRP nrp = NRPLoadSolutionTest.createNrp( solutionType, instanceId );
+                nrp.initialiseSolution( 0 );
+                nrp.applyHeuristic( 1, 0, 0 );
+                nrp.applyHeuristic( 8, 0, 0 );
+
+                int[] customerIds = nrp.getSolutionCustomerIds( 0 );
+                nrp.loadSolution( 1, customerIds );
+
+                assertArrayEquals( customerIds, nrp.getSolutionCustomerIds( 1 ) );
+                assertEquals( nrp.getFunctionValue( 0 ), nrp.getFunctionValue( 1 ), 0.0 );
+                assertEquals( nrp.getSolutionFingerprint( 0 ), nrp.getSolutionFingerprint( 1 ) );
+                assertTrue( nrp.compareSolutions( 0, 1 ) );
+            }
+        }
+    }
+
+    @Test
+    public void exportedSolutionLoadsIntoOtherRepresentation()
+    {
+        NRP bitSetNrp = NRPLoadSolutionTest.createNrp( NRPSolutionType.BITSET, 2 );
+        NRP listNrp = NRPLoadSolutionTest.createNrp( NRPSolutionType.LIST, 2 );
+        bitSetNrp.initialiseSolution( 0 );
+
+        listNrp.loadSolution( 0, bitSetNrp.getSolutionCustomerIds( 0 ) );
+
+        assertArrayEquals( bitSetNrp.getSolutionCustomerIds( 0 ),
+                listNrp.getSolutionCustomerIds( 0 ) );
+        assertEquals( bitSetNrp.getFunctionValue( 0 ), listNrp.getFunctionValue( 0 ), 0.0 );
+        assertEquals( bitSetNrp.getSolutionFingerprint( 0 ),
+                listNrp.getSolutionFingerprint( 0 ) );
+    }
+
+    @Test
+    public void duplicateIdsAreAcceptedOnce()
+    {
+        long fingerprint = 0L;
+        for ( NRPSolutionType solutionType : NRPSolutionType.values() ) {
+            NRP nrp = NRPLoadSolutionTest.createNrp( solutionType, 1 );
+            nrp.loadSolution( 0, new int[] { 5, 5, 7 } );
+            nrp.loadSolution( 1, new int[] { 7, 5 } );
+
+            assertArrayEquals( new int[] { 5, 7 }, nrp.getSolutionCustomerIds( 0 ) );
+            assertEquals( nrp.getFunctionValue( 1 ), nrp.getFunctionValue( 0 ), 0.0 );
+            assertEquals( nrp.getSolutionFingerprint( 1 ), nrp.getSolutionFingerprint( 0 ) );
+
+            if ( solutionType != NRPSolutionType.values()[ 0 ] ) {
+                assertEquals( fingerprint, nrp.getSolutionFingerprint( 0 ) );
+            }
+            fingerprint = nrp.getSolutionFingerprint( 0 );
+        }
+    }
+
+    @Test
+    public void idsOutOfRangeAreRejected()
+    {
+        for ( NRPSolutionType solutionType : NRPSolutionType.values() ) {
+            NRP nrp = NRPLoadSolutionTest.createNrp( solutionType, 1 );
+            int numberOfCustomers = NRPTestInstances.getBundled( 1 ).getNumberOfCustomers();
+            nrp.loadSolution( 0, new int[] { 1, 2 } );
+
+            for ( int customerId : new int[] { 0, -1, numberOfCustomers + 1 } ) {
+                try {
+                    nrp.loadSolution( 0, new int[] { 3, customerId } );
+                    fail( "customer " + customerId + " was loaded" );
+                } catch ( IllegalArgumentException e ) {
+                    assertArrayEquals( new int[] { 1, 2 }, nrp.getSolutionCustomerIds( 0 ) );
+                }
+            }
+
+            nrp.loadSolution( 0, new int[] { numberOfCustomers } );
+            assertArrayEquals( new int[] { numberOfCustomers }, nrp.getSolutionCustomerIds( 0 ) );
+        }
+    }
+
+    /**
+     * A solution of the 0.7 instance is loaded into the 0.3 instance with the same
+     * customers, it has to lose customers until it fits and gain none
+     */
+    @Test
+    public void solutionOverTheLimitIsRepairedOnLoad()
+    {
+        NRPInstance tightInstance = NRPTestInstances.getBundled( 1 );
+        for ( NRPSolutionType solutionType : NRPSolutionType.values() ) {
+            NRP looseNrp = NRPLoadSolutionTest.createNrp( solutionType, 3 );
+            NRP tightNrp = NRPLoadSolutionTest.createNrp( solutionType, 1 );
+            looseNrp.initialiseSolution( 0 );
+            int[] customerIds = looseNrp.getSolutionCustomerIds( 0 );
+            assertTrue( NRPTestInstances.getTotalCost( tightInstance, customerIds )
+                    > tightInstance.getCostLimit() );
+
+            tightNrp.loadSolution( 0, customerIds );
+
+            int[] loadedIds = tightNrp.getSolutionCustomerIds( 0 );
+            assertTrue( NRPTestInstances.getTotalCost( tightInstance, loadedIds )
+                    <= tightInstance.getCostLimit() );
+            assertTrue( loadedIds.length > 0 );
+            for ( int customerId : loadedIds ) {
+                assertTrue( Arrays.binarySearch( customerIds, customerId ) >= 0 );
+            }
+        }
+    }
+
+    /**
+     * Lowering the cost limit through a delta repairs every solution in memory and
+     * the best solution
+     */
+    @Test
+    public void solutionsAreRepairedAfterCostLimitChange()
+    {
+        NRPInstance nrpInstance = NRPTestInstances.getBundled( 3 );
+        double costLimit = nrpInstance.getTotalCost() * 0.2;
+        for ( NRPSolutionType solutionType : NRPSolutionType.values() ) {
+            NRP nrp = NRPLoadSolutionTest.createNrp( solutionType, 3 );
+            nrp.initialiseSolution( 0 );
+            nrp.initialiseSolution( 1 );
+
+            NRPInstanceDelta delta = new NRPInstanceDelta();
+            delta.setCostLimitRatio( 0.2 );
+            nrp.applyInstanceDelta( delta );
+
+            for ( int solutionIndex = 0; solutionIndex < 2; solutionIndex++ ) {
+                assertTrue( NRPTestInstances.getTotalCost( nrpInstance,
+                        nrp.getSolutionCustomerIds( solutionIndex ) ) <= costLimit );
+            }
+            assertTrue( NRPTestInstances.getTotalCost( nrpInstance,
+                    nrp.getBestSolutionCustomerIds() ) <= costLimit );
+            assertTrue( nrp.getBestSolutionValue()
+                    <= Math.min( nrp.getFunctionValue( 0 ), nrp.getFunctionValue( 1 ) ) );
+        }
+    }
+
+    private static NRP createNrp( NRPSolutionType solutionType, int instanceId )
+    {
+        NRP nrp = new NRP( seed, solutionType );
+        nrp.loadInstance( instanceId );
+        nrp.setMemorySize( 2 );
+
+        return nrp;
+    }
+}
@@ -0,0 +1,238 @@
+package nrp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * The bitset representation against the list representation, which is kept as the
+ * reference. Both are driven through the same random adds and removes and have to
+ * agree after every step
+ */
+public class NRPSolutionTest
+{
+    private static final int numberOfSteps = 300;
+    private static final double tolerance = 1e-9;
+
+    @Test
+    public void representationsAgreeOnBundledInstances()
+    {
+        for ( int instanceId : new int[] { 1, 4 } ) {
+            this.checkRepresentations( NRPTestInstances.getBundled( instanceId ),
+                    new Random( instanceId ) );
+        }
+    }
+
+    @Test
+    public void representationsAgreeOnGeneratedInstance() throws IOException
+    {
+        this.checkRepresentations( NRPTestInstances.generate( 7L ), new Random( 7L ) );
+    }
+
+    @Test
+    public void copyDoesNotShareChanges()
+    {
+        NRPInstance nrpInstance = NRPTestInstances.getBundled( 4 );
+        NRPSolution nrpSolution = new BitSetNRPSolution( nrpInstance );
+        for ( int i = 0; i < 20; i++ ) {
+            nrpSolution.addAnAcceptedCustomer( i );
+        }
+        double totalCost = nrpSolution.getTotalCost();
+
+        NRPSolution removedCopy = nrpSolution.copy();
+        NRPSolution addedCopy = nrpSolution.copy();
+        removedCopy.removeAnAcceptedCustomer( 2 );
+        addedCopy.addAnAcceptedCustomer( 29 );
+
+        assertEquals( 20, nrpSolution.getAcceptedCustomers().length );
+        assertEquals( totalCost, nrpSolution.getTotalCost(), 0.0 );
+        assertEquals( 0.0, nrpSolution.getMarginalCost( 2, Double.MAX_VALUE ), 0.0 );
+        assertEquals( 19, removedCopy.getAcceptedCustomers().length );
+        assertEquals( 21, addedCopy.getAcceptedCustomers().length );
+        assertFalse( nrpSolution.getAcceptedCustomerSet().get( 29 ) );
+    }
+
+    /**
+     * A copy which is released, as NRP does when a solution in memory is replaced,
+     * leaves the original as the only user of the memory, while a copy which is
+     * still in use keeps its customers when the original is modified
+     */
+    @Test
+    public void releasedCopyDoesNotForceACopyOnWrite()
+    {
+        NRPInstance nrpInstance = NRPTestInstances.getBundled( 4 );
+        BitSetNRPSolution nrpSolution = new BitSetNRPSolution( nrpInstance );
+        for ( int i = 0; i < 20; i++ ) {
+            nrpSolution.addAnAcceptedCustomer( i );
+        }
+
+        NRPSolution discardedCopy = nrpSolution.copy();
+        assertTrue( nrpSolution.isSharingMemory() );
+        discardedCopy.release();
+        assertFalse( nrpSolution.isSharingMemory() );
+
+        nrpSolution.addAnAcceptedCustomer( 29 );
+        assertFalse( nrpSolution.isSharingMemory() );
+        assertEquals( 21, nrpSolution.getAcceptedCustomers().length );
+
+        BitSetNRPSolution keptCopy = (BitSetNRPSolution) nrpSolution.copy();
+        discardedCopy = nrpSolution.copy();
+        discardedCopy.release();
+        assertTrue( keptCopy.isSharingMemory() );
+
+        nrpSolution.removeAnAcceptedCustomer( 29 );
+        assertFalse( nrpSolution.isSharingMemory() );
+        assertFalse( keptCopy.isSharingMemory() );
+        assertEquals( 21, keptCopy.getAcceptedCustomers().length );
+        assertEquals( 20, nrpSolution.getAcceptedCustomers().length );
+    }
+
+    private void checkRepresentations( NRPInstance nrpInstance, Random random )
+    {
+        NRPSolution listSolution = new ListNRPSolution( nrpInstance );
+        NRPSolution bitSetSolution = new BitSetNRPSolution( nrpInstance );
+        double costLimit = nrpInstance.getCostLimit();
+
+        for ( int step = 0; step < numberOfSteps; step++ ) {
+            int customerIndex = random.nextInt( nrpInstance.getNumberOfCustomers() );
+
+            if ( listSolution.getAcceptedCustomerSet().get( customerIndex ) ) {
+                NRPSolution removedSolution = listSolution.copy();
+                removedSolution.removeAnAcceptedCustomer( customerIndex );
+                double freedCost = listSolution.getTotalCost() - removedSolution.getTotalCost();
+                assertEquals( freedCost, listSolution.getFreedCost( customerIndex ), tolerance );
+                assertEquals( freedCost, bitSetSolution.getFreedCost( customerIndex ), tolerance );
+
+                listSolution.removeAnAcceptedCustomer( customerIndex );
+                bitSetSolution.removeAnAcceptedCustomer( customerIndex );
+            } else {
+                NRPSolution addedSolution = listSolution.copy();
+                addedSolution.addAnAcceptedCustomer( customerIndex );
+                double marginalCost = addedSolution.getTotalCost() - listSolution.getTotalCost();
+                assertEquals( marginalCost,
+                        listSolution.getMarginalCost( customerIndex, Double.MAX_VALUE ),
+                        tolerance );
+                assertEquals( marginalCost,
+                        bitSetSolution.getMarginalCost( customerIndex, Double.MAX_VALUE ),
+                        tolerance );
+                assertEquals( listSolution.isSafeAddingACustomer( customerIndex, costLimit ),
+                        bitSetSolution.isSafeAddingACustomer( customerIndex, costLimit ) );
+
+                int[] acceptedCustomers = listSolution.getAcceptedCustomers();
+                if ( acceptedCustomers.length > 0 ) {
+                    int removedCustomer
+                            = acceptedCustomers[ random.nextInt( acceptedCustomers.length ) ];
+                    NRPSolution swappedSolution = listSolution.copy();
+                    swappedSolution.removeAnAcceptedCustomer( removedCustomer );
+                    swappedSolution.addAnAcceptedCustomer( customerIndex );
+                    assertEquals( swappedSolution.getTotalCost(),
+                            bitSetSolution.getSwapCost( removedCustomer, customerIndex ),
+                            tolerance );
+                }
+
+                listSolution.addAnAcceptedCustomer( customerIndex );
+                bitSetSolution.addAnAcceptedCustomer( customerIndex );
+            }
+
+            NRPSolutionTest.assertSameSolution( listSolution, bitSetSolution );
+            if ( step % 25 == 0 ) {
+                NRPSolutionTest.assertAffordable( listSolution, costLimit );
+                NRPSolutionTest.assertAffordable( bitSetSolution, costLimit );
+                NRPSolutionTest.assertSameRanks( listSolution, bitSetSolution );
+            }
+        }
+    }
+
+    private static void assertSameSolution( NRPSolution expected, NRPSolution actual )
+    {
+        assertEquals( expected.getTotalCost(), actual.getTotalCost(), tolerance );
+        assertEquals( expected.getTotalProfit(), actual.getTotalProfit(), tolerance );
+        assertEquals( expected.getFingerprint(), actual.getFingerprint() );
+        assertTrue( expected.hasSameAcceptedCustomers( actual ) );
+        assertTrue( actual.hasSameAcceptedCustomers( expected ) );
+        assertTrue( actual.compareAcceptedCustomers( expected ) );
+        assertEquals( expected.getAcceptedCustomerSet(), actual.getAcceptedCustomerSet() );
+        assertArrayEquals( NRPSolutionTest.sorted( expected.getAcceptedCustomers() ),
+                NRPSolutionTest.sorted( actual.getAcceptedCustomers() ) );
+        assertArrayEquals( NRPSolutionTest.sorted( expected.getAcceptedEnhancements() ),
+                NRPSolutionTest.sorted( actual.getAcceptedEnhancements() ) );
+
+        for ( NRPCustomerOrdering ordering : NRPCustomerOrdering.values() ) {
+            assertEquals( expected.getFirstAcceptedCustomer( ordering ),
+                    actual.getFirstAcceptedCustomer( ordering ) );
+            for ( boolean reversed : new boolean[] { false, true } ) {
+                assertArrayEquals( expected.getHaveNotBeenAcceptedCustomers( ordering, reversed ),
+                        actual.getHaveNotBeenAcceptedCustomers( ordering, reversed ) );
+            }
+        }
+    }
+
+    /**
+     * Walking the ranks one at a time gives the accepted customers and the ones which
+     * have not been accepted in the same order as the lists
+     */
+    private static void assertSameRanks( NRPSolution expected, NRPSolution actual )
+    {
+        for ( NRPCustomerOrdering ordering : NRPCustomerOrdering.values() ) {
+            int[] customerOrder = actual.getNrpInstance().getCustomerOrder( ordering );
+
+            int index = 0;
+            int[] acceptedCustomers = NRPSolutionTest.sorted( expected.getAcceptedCustomers() );
+            for ( int rank = actual.getNextAcceptedRank( ordering, 0 ); rank >= 0;
+                    rank = actual.getNextAcceptedRank( ordering, rank + 1 ) ) {
+                assertEquals( rank, expected.getNextAcceptedRank( ordering, rank ) );
+                assertTrue( Arrays.binarySearch( acceptedCustomers,
+                        customerOrder[ rank ] ) >= 0 );
+                index++;
+            }
+            assertEquals( acceptedCustomers.length, index );
+
+            index = 0;
+            int[] haveNotBeenAcceptedCustomers
+                    = expected.getHaveNotBeenAcceptedCustomers( ordering, true );
+            for ( int rank = actual.getPreviousRejectedRank( ordering,
+                    customerOrder.length - 1 ); rank >= 0;
+                    rank = actual.getPreviousRejectedRank( ordering, rank - 1 ) ) {
+                assertEquals( haveNotBeenAcceptedCustomers[ index++ ], customerOrder[ rank ] );
+            }
+            assertEquals( haveNotBeenAcceptedCustomers.length, index );
+        }
+    }
+
+    /**
+     * Every customer whose marginal cost fits the budget has to be returned
+     */
+    private static void assertAffordable( NRPSolution nrpSolution, double costLimit )
+    {
+        double budget = costLimit - nrpSolution.getTotalCost();
+        if ( budget < 0.0 ) {
+            return;
+        }
+
+        for ( NRPCustomerOrdering ordering : NRPCustomerOrdering.values() ) {
+            int[] affordableCustomers
+                    = NRPSolutionTest.sorted( nrpSolution.getAffordableCustomers( ordering, true,
+                            budget ) );
+            for ( int customerIndex : nrpSolution.getHaveNotBeenAcceptedCustomers() ) {
+                if ( nrpSolution.getMarginalCost( customerIndex, budget ) <= budget ) {
+                    assertTrue( Arrays.binarySearch( affordableCustomers, customerIndex ) >= 0 );
+                }
+            }
+        }
+    }
+
+    private static int[] sorted( int[] values )
+    {
+        int[] sortedValues = values.clone();
+        Arrays.sort( sortedValues );
+
+        return sortedValues;
+    }
+}
@@ -0,0 +1,81 @@
+package nrp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Instances shared by the tests, the bundled instances are read from
+ * src/nrp/instance/ so the tests run from the repository root
+ */
+class NRPTestInstances
+{
+    /**
+     * @param instanceId
+     * @return the bundled instance
+     */
+    protected static NRPInstance getBundled( int instanceId )
+    {
+        return NRPInstanceRegistry.get( NRPDirectoryInstanceSource.getBundledInstances(),
+                instanceId );
+    }
+
+    /**
+     * @param seed
+     * @return a generator of a small instance, small enough for the list
+     *         representation
+     */
+    protected static NRPInstanceGenerator getSmallGenerator( long seed )
+    {
+        NRPInstanceGenerator instanceGenerator = new NRPInstanceGenerator( seed );
+        instanceGenerator.setNumberOfLevels( 3 );
+        instanceGenerator.setEnhancementsPerLevel( 40 );
+        instanceGenerator.setNumberOfCustomers( 150 );
+        instanceGenerator.setRequestsPerCustomer( 4 );
+
+        return instanceGenerator;
+    }
+
+    /**
+     * @param seed
+     * @return the small instance of getSmallGenerator
+     * @throws IOException
+     */
+    protected static NRPInstance generate( long seed ) throws IOException
+    {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        NRPTestInstances.getSmallGenerator( seed ).write( outputStream );
+
+        return NRPTestInstances.parse( outputStream.toString( "US-ASCII" ) );
+    }
+
+    /**
+     * @param text
+     *            the instance in the format of the instance files
+     * @return the parsed instance
+     * @throws IOException
+     */
+    protected static NRPInstance parse( String text ) throws IOException
+    {
+        return NRPInstance.parse( 1, new NRPInstanceParser( "test", Channels.newChannel(
+                new ByteArrayInputStream( text.getBytes( StandardCharsets.US_ASCII ) ) ) ) );
+    }
+
+    /**
+     * @param nrpInstance
+     * @param customerIds
+     *            from 1
+     * @return the cost of the enhancements the customers need
+     */
+    protected static double getTotalCost( NRPInstance nrpInstance, int[] customerIds )
+    {
+        NRPSolution nrpSolution = new BitSetNRPSolution( nrpInstance );
+        for ( int customerId : customerIds ) {
+            nrpSolution.addAnAcceptedCustomer( customerId - 1 );
+        }
+
+        return nrpSolution.getTotalCost();
+    }
+}